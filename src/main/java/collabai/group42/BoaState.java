@@ -2,7 +2,11 @@ package collabai.group42;
 
 import collabai.group42.acceptance.AcceptanceStrategy;
 import collabai.group42.acceptance.NextAcceptanceStrategy;
+import collabai.group42.biddingStrategy.BidCodec;
 import collabai.group42.biddingStrategy.BiddingStrategy;
+import collabai.group42.biddingStrategy.CompiledUtilSpace;
+import collabai.group42.biddingStrategy.PackedBid;
+import collabai.group42.opponent.Group42OpponentModel;
 import geniusweb.actions.Action;
 import geniusweb.actions.Offer;
 import geniusweb.actions.PartyId;
@@ -14,6 +18,8 @@ import geniusweb.inform.Settings;
 import geniusweb.issuevalue.Bid;
 import geniusweb.opponentmodel.OpponentModel;
 import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.profile.utilityspace.UtilitySpace;
 import geniusweb.progress.Progress;
 import geniusweb.progress.ProgressRounds;
 import tudelft.utilities.logging.Reporter;
@@ -22,21 +28,31 @@ import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 
 /**
  * Stores the current state of the negotiation for a {@link BoaParty}, including
- * the state of the opponent models. immutable.
+ * the state of the opponent models. immutable, apart from the caches of the
+ * session: the {@link UtilityCache} and the intern pool of the
+ * {@link BidCodec} are made when the profile arrives and shared by all
+ * states of the session. They only remember results, so they do not change
+ * what any state returns.
  */
 public class BoaState {
     private final Settings settings;
     private final Profile profile;
+    private final CompiledUtilSpace utilSpace;
+    private final BidCodec codec;
+    private final UtilityCache utilityCache;
     private final Progress progress;
     private final Class<? extends OpponentModel> opponentModelClass;
     private final Map<PartyId, OpponentModel> opponentModels;
-    private final List<Action> actionHistory;
+    private final PersistentList<Action> actionHistory;
+    private final OfferIndex offerIndex;
     private final BiddingStrategy biddingStrategy;
     private final AcceptanceStrategy acceptanceStrategy;
     private final Reporter reporter;
@@ -48,8 +64,9 @@ public class BoaState {
      * @param reporter the {@link Reporter} to use for logging
      */
     public BoaState(Reporter reporter) {
-        this(null, null, null, null, null, null, Collections.emptyList(),
-                Collections.emptyMap(), reporter);
+        this(null, null, null, null, null, null, null, null, null,
+                PersistentList.empty(),
+                OfferIndex.EMPTY, Collections.emptyMap(), reporter);
         if (reporter == null) {
             throw new NullPointerException("reporter must be not null");
         }
@@ -60,29 +77,43 @@ public class BoaState {
      *
      * @param settings      the negoi {@link Settings}
      * @param profile       the {@link Profile} to be used
+     * @param utilSpace     the compiled profile, or null if the profile is
+     *                      not {@link LinearAdditive}
+     * @param codec         the {@link BidCodec} of the profile's domain, or
+     *                      null if there is no profile yet
+     * @param utilityCache  the {@link UtilityCache} of the session, or null
+     *                      if there is no profile yet
      * @param progr         the {@link Progress}
      * @param bidstrat      the {@link BiddingStrategy}
      * @param acceptstrat   the {@link AcceptanceStrategy}
      * @param omClass       the class of the {@link OpponentModel}
      * @param actionHistory list of {@link Action}s that have been done in the
      *                      negotiatino (by us and others), first action is the
-     *                      oldest.
+     *                      oldest. Shared with the state it was derived from.
+     * @param offerIndex    the {@link OfferIndex} of the actionHistory
      * @param oppMods       a map of {@link OpponentModel}s, one for each
      *                      {@link PartyId} encountered in the negotiation
      * @param reporter      the {@link Reporter} that can be used to log
      *                      messages. Should equal {@link BoaParty}'s reporter
      */
-    private BoaState(Settings settings, Profile profile, Progress progr,
+    private BoaState(Settings settings, Profile profile,
+                     CompiledUtilSpace utilSpace, BidCodec codec,
+                     UtilityCache utilityCache, Progress progr,
                      BiddingStrategy bidstrat, AcceptanceStrategy acceptstrat,
-                     Class<? extends OpponentModel> omClass, List<Action> actionHistory,
-                     Map<PartyId, OpponentModel> oppMods, Reporter reporter) {
+                     Class<? extends OpponentModel> omClass, PersistentList<Action> actionHistory,
+                     OfferIndex offerIndex, Map<PartyId, OpponentModel> oppMods,
+                     Reporter reporter) {
         this.settings = settings;
         this.profile = profile;
+        this.utilSpace = utilSpace;
+        this.codec = codec;
+        this.utilityCache = utilityCache;
         this.progress = progr;
         this.biddingStrategy = bidstrat;
         this.acceptanceStrategy = acceptstrat;
         this.opponentModelClass = omClass;
         this.actionHistory = actionHistory;
+        this.offerIndex = offerIndex;
         this.opponentModels = oppMods;
         this.reporter = reporter;
     }
@@ -105,15 +136,20 @@ public class BoaState {
                 || acceptstrat == null || reporter == null)
             throw new NullPointerException(
                     "settings, reporter, bidstrat, acceptstrat, omClass and oModels must be not null");
-        return new BoaState(newsettings, null, newsettings.getProgress(),
-                bidstrat, acceptstrat, omClass, actionHistory,
+        return new BoaState(newsettings, null, null, null, null,
+                newsettings.getProgress(),
+                bidstrat, acceptstrat, omClass, actionHistory, offerIndex,
                 new HashMap<PartyId, OpponentModel>(), reporter);
     }
 
     public BoaState with(Profile newprofile) {
-        return new BoaState(settings, newprofile, progress, biddingStrategy,
-                acceptanceStrategy, opponentModelClass, actionHistory,
-                opponentModels, reporter);
+        CompiledUtilSpace newUtilSpace = newprofile instanceof LinearAdditive
+                ? new CompiledUtilSpace((LinearAdditive) newprofile) : null;
+        return new BoaState(settings, newprofile, newUtilSpace,
+                new BidCodec(newprofile.getDomain()), new UtilityCache(),
+                progress,
+                biddingStrategy, acceptanceStrategy, opponentModelClass,
+                actionHistory, offerIndex, opponentModels, reporter);
 
     }
 
@@ -133,6 +169,89 @@ public class BoaState {
         return profile;
     }
 
+    /**
+     * @param bid the {@link Bid} to evaluate
+     * @return the utility of bid in our profile. Uses the
+     * {@link CompiledUtilSpace} if the profile is {@link LinearAdditive}.
+     * The result of a received bid is kept in the {@link UtilityCache} of the
+     * session, under its interned packed form. Other bids are evaluated
+     * directly: encoding them costs about as much as evaluating them.
+     */
+    public double getUtility(Bid bid) {
+        if (codec == null) {
+            return computeUtility(bid);
+        }
+        PackedBid packed = codec.getInterned(bid);
+        if (packed == null || !packed.isComplete()) {
+            // values outside the domain all encode the same
+            return computeUtility(bid);
+        }
+        return getUtility(packed);
+    }
+
+    /**
+     * @param bid a bid encoded with {@link #getCodec()}
+     * @return the utility of bid in our profile
+     */
+    public double getUtility(PackedBid bid) {
+        if (utilityCache == null) {
+            return computeUtility(bid);
+        }
+        double util = utilityCache.get(bid);
+        if (Double.isNaN(util)) {
+            util = computeUtility(bid);
+            utilityCache.put(bid, util);
+        }
+        return util;
+    }
+
+    private double computeUtility(Bid bid) {
+        if (utilSpace != null) {
+            return utilSpace.getUtility(bid);
+        }
+        return ((UtilitySpace) profile).getUtility(bid).doubleValue();
+    }
+
+    private double computeUtility(PackedBid bid) {
+        if (utilSpace == null) {
+            return computeUtility(bid.getBid());
+        }
+        double util = 0d;
+        for (int i = 0; i < utilSpace.getNumIssues(); i++) {
+            long ord = codec.getOrdinal(bid, i);
+            if (ord >= 0) {
+                util += utilSpace.getWeightedUtil(i, ord);
+            }
+        }
+        return util;
+    }
+
+    /**
+     * @return the cache of our utilities of the bids, shared by all states
+     * of the session, or null if no profile was received yet.
+     */
+    public UtilityCache getUtilityCache() {
+        return utilityCache;
+    }
+
+    /**
+     * @return the codec for the bids of the profile's domain, or null if no
+     * profile was received yet. Received bids are interned in it.
+     */
+    public BidCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Interns the bid of an offer in the pool of the session, so that the
+     * models and strategies can use its packed form.
+     */
+    private void intern(Action action) {
+        if (codec != null && action instanceof Offer) {
+            codec.intern(((Offer) action).getBid());
+        }
+    }
+
     /**
      * @param action the action that was done by some participant (possibly us).
      * @return new BoaState that includes action.getBid as last bid (if action
@@ -142,8 +261,10 @@ public class BoaState {
      *                                      be instantiated.
      */
     public BoaState with(Action action) throws InstantiationFailedException {
-        List<Action> newactions = new ArrayList<Action>(actionHistory);
-        newactions.add(action);
+        intern(action);
+        PersistentList<Action> newactions = actionHistory.plus(action);
+        OfferIndex newindex = offerIndex.with(action, settings.getID(),
+                profile instanceof UtilitySpace ? this::getUtility : null);
         Progress newprogress = progress;
         Map<PartyId, OpponentModel> newmodels = opponentModels;
 
@@ -157,9 +278,72 @@ public class BoaState {
             // not ourselves, update the OpponentModel
             newmodels = updateModels(action);
         }
-        return new BoaState(settings, profile, newprogress, biddingStrategy,
-                acceptanceStrategy, opponentModelClass, newactions, newmodels,
-                reporter);
+        return new BoaState(settings, profile, utilSpace, codec, utilityCache,
+                newprogress, biddingStrategy, acceptanceStrategy,
+                opponentModelClass, newactions, newindex, newmodels, reporter);
+    }
+
+    /**
+     * Same as calling {@link #with(Action)} for each action in turn, for
+     * instance to replay a recorded negotiation. The model of each opponent
+     * is updated once, with {@link Group42OpponentModel#withAll(List,
+     * IntFunction)} if it is a {@link Group42OpponentModel}.
+     *
+     * @param actions the actions, oldest first
+     * @return new BoaState that includes all actions
+     * @throws InstantiationFailedException if one of provided classes can not
+     *                                      be instantiated.
+     */
+    public BoaState withAll(List<Action> actions)
+            throws InstantiationFailedException {
+        PersistentList<Action> newactions = actionHistory;
+        OfferIndex newindex = offerIndex;
+        Progress newprogress = progress;
+        Map<PartyId, List<Action>> batches = new LinkedHashMap<>();
+        Map<PartyId, List<Progress>> batchProgress = new HashMap<>();
+
+        for (Action action : actions) {
+            intern(action);
+            newactions = newactions.plus(action);
+            newindex = newindex.with(action, settings.getID(),
+                    profile instanceof UtilitySpace ? this::getUtility : null);
+            PartyId actor = action.getActor();
+            if (actor.equals(settings.getID())) {
+                if (newprogress instanceof ProgressRounds) {
+                    newprogress = ((ProgressRounds) newprogress).advance();
+                }
+            } else {
+                batches.computeIfAbsent(actor, id -> new ArrayList<>())
+                        .add(action);
+                batchProgress.computeIfAbsent(actor, id -> new ArrayList<>())
+                        .add(newprogress);
+            }
+        }
+
+        Map<PartyId, OpponentModel> newmodels = opponentModels;
+        if (!batches.isEmpty()) {
+            newmodels = new HashMap<>(opponentModels);
+            for (PartyId actor : batches.keySet()) {
+                List<Action> batch = batches.get(actor);
+                List<Progress> batchprogress = batchProgress.get(actor);
+                OpponentModel model = newmodels.get(actor);
+                if (model == null) {
+                    model = newOpponentModel();
+                }
+                if (model instanceof Group42OpponentModel) {
+                    model = ((Group42OpponentModel) model).withAll(batch,
+                            batchprogress::get);
+                } else {
+                    for (int n = 0; n < batch.size(); n++) {
+                        model = model.with(batch.get(n), batchprogress.get(n));
+                    }
+                }
+                newmodels.put(actor, model);
+            }
+        }
+        return new BoaState(settings, profile, utilSpace, codec, utilityCache,
+                newprogress, biddingStrategy, acceptanceStrategy,
+                opponentModelClass, newactions, newindex, newmodels, reporter);
     }
 
     /**
@@ -170,10 +354,59 @@ public class BoaState {
     }
 
     /**
-     * @return list of actions done so far, oldest action first
+     * @return unmodifiable list of actions done so far, oldest action first
      */
     public List<Action> getActionHistory() {
-        return Collections.unmodifiableList(actionHistory);
+        return actionHistory;
+    }
+
+    /**
+     * @return the most recent bid that was offered by any party, or null if
+     * no offer has been done yet.
+     */
+    public Bid getLastBid() {
+        return offerIndex.getLastBid();
+    }
+
+    /**
+     * @param party the {@link PartyId} of a participant (possibly us)
+     * @return the most recent bid offered by party, or null if party did not
+     * make an offer yet.
+     */
+    public Bid getLastBid(PartyId party) {
+        return offerIndex.getLastBid(party);
+    }
+
+    /**
+     * @return the most recent bid that we offered, or null if we did not make
+     * an offer yet.
+     */
+    public Bid getMyLastBid() {
+        return offerIndex.getLastBid(settings.getID());
+    }
+
+    /**
+     * @return the bid offered by the other parties that has the highest
+     * utility in our profile, or null if no offer was received yet.
+     */
+    public Bid getBestReceivedBid() {
+        return offerIndex.getBestReceivedBid();
+    }
+
+    /**
+     * @return our utility of {@link #getBestReceivedBid()}, or 0 if no offer
+     * was received yet.
+     */
+    public double getBestReceivedUtility() {
+        return offerIndex.getBestReceivedUtility();
+    }
+
+    /**
+     * @param party the {@link PartyId} of a participant (possibly us)
+     * @return the number of offers party made so far
+     */
+    public int getOfferCount(PartyId party) {
+        return offerIndex.getOfferCount(party);
     }
 
     /**
@@ -227,6 +460,10 @@ public class BoaState {
             throws InstantiationFailedException {
         PartyId actor = action.getActor();
         Map<PartyId, OpponentModel> updated = extendedOpponentModels(actor);
+        if (updated == opponentModels) {
+            // do not change the models of this state
+            updated = new HashMap<>(opponentModels);
+        }
         updated.put(actor, updated.get(actor).with(action, progress));
         return updated;
     }
@@ -248,16 +485,28 @@ public class BoaState {
             return opponentModels;
 
         Map<PartyId, OpponentModel> newmodels = new HashMap<>(opponentModels);
-        OpponentModel newmodel;
+        newmodels.put(newparty, newOpponentModel());
+        return newmodels;
+    }
+
+    /**
+     * @return a new, initialized, opponent model. A
+     * {@link Group42OpponentModel} gets the codec of the session.
+     * @throws InstantiationFailedException if the model can not be created
+     */
+    private OpponentModel newOpponentModel()
+            throws InstantiationFailedException {
         try {
-            newmodel = opponentModelClass.newInstance()
-                    .with(profile.getDomain(), profile.getReservationBid());
+            OpponentModel model = opponentModelClass.newInstance();
+            if (model instanceof Group42OpponentModel && codec != null) {
+                return ((Group42OpponentModel) model).with(codec,
+                        profile.getReservationBid());
+            }
+            return model.with(profile.getDomain(), profile.getReservationBid());
         } catch (Exception e) {
             throw new InstantiationFailedException(
                     "Failed to instantiate " + opponentModelClass, e);
         }
-        newmodels.put(newparty, newmodel);
-        return newmodels;
     }
 
 
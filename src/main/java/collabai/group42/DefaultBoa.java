@@ -2,7 +2,6 @@ package collabai.group42;
 
 import geniusweb.actions.Accept;
 import geniusweb.actions.Action;
-import geniusweb.actions.Offer;
 import geniusweb.boa.InstantiationFailedException;
 import collabai.group42.acceptance.AcceptanceStrategy;
 import collabai.group42.acceptance.NextAcceptanceStrategy;
@@ -24,7 +23,6 @@ import tudelft.utilities.logging.Reporter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.logging.Level;
 
 /**
@@ -156,14 +154,7 @@ public abstract class DefaultBoa extends DefaultParty {
      * been done yet.
      */
     protected Bid getLastBid() {
-        List<Action> actions = negoState.getActionHistory();
-        for (int n = actions.size() - 1; n >= 0; n--) {
-            Action action = actions.get(n);
-            if (action instanceof Offer) {
-                return ((Offer) action).getBid();
-            }
-        }
-        return null;
+        return negoState.getLastBid();
     }
 
     private Action getAction() {
@@ -0,0 +1,110 @@
+package collabai.group42;
+
+import geniusweb.actions.Action;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.issuevalue.Bid;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Summary of the offers in the action history of a {@link BoaState}, updated
+ * incrementally with every action so that the strategies do not have to walk
+ * the history. The cost of an update depends only on the number of parties,
+ * not on the length of the history.
+ * <p>
+ * immutable.
+ */
+final class OfferIndex {
+    static final OfferIndex EMPTY = new OfferIndex(null, Collections.emptyMap(),
+            Collections.emptyMap(), null, 0d);
+
+    private final Bid lastBid;
+    private final Map<PartyId, Bid> lastBids;
+    private final Map<PartyId, Integer> offerCounts;
+    private final Bid bestReceivedBid;
+    private final double bestReceivedUtility;
+
+    private OfferIndex(Bid lastBid, Map<PartyId, Bid> lastBids,
+                       Map<PartyId, Integer> offerCounts, Bid bestReceivedBid,
+                       double bestReceivedUtility) {
+        this.lastBid = lastBid;
+        this.lastBids = lastBids;
+        this.offerCounts = offerCounts;
+        this.bestReceivedBid = bestReceivedBid;
+        this.bestReceivedUtility = bestReceivedUtility;
+    }
+
+    /**
+     * @param action  the action that was done
+     * @param me      our own {@link PartyId}
+     * @param utility our utility function, used to rank received offers. If
+     *                null, the best received offer is not updated.
+     * @return new OfferIndex that includes action
+     */
+    OfferIndex with(Action action, PartyId me, ToDoubleFunction<Bid> utility) {
+        if (!(action instanceof Offer)) {
+            return this;
+        }
+        PartyId actor = action.getActor();
+        Bid bid = ((Offer) action).getBid();
+
+        Map<PartyId, Bid> newLastBids = new HashMap<>(lastBids);
+        newLastBids.put(actor, bid);
+        Map<PartyId, Integer> newCounts = new HashMap<>(offerCounts);
+        newCounts.merge(actor, 1, Integer::sum);
+
+        Bid newBest = bestReceivedBid;
+        double newBestUtil = bestReceivedUtility;
+        if (!actor.equals(me) && utility != null) {
+            double util = utility.applyAsDouble(bid);
+            if (newBest == null || util > newBestUtil) {
+                newBest = bid;
+                newBestUtil = util;
+            }
+        }
+        return new OfferIndex(bid, newLastBids, newCounts, newBest,
+                newBestUtil);
+    }
+
+    /**
+     * @return the most recently offered bid, by any party, or null
+     */
+    Bid getLastBid() {
+        return lastBid;
+    }
+
+    /**
+     * @param party the party
+     * @return the most recent bid offered by party, or null
+     */
+    Bid getLastBid(PartyId party) {
+        return lastBids.get(party);
+    }
+
+    /**
+     * @param party the party
+     * @return number of offers done by party
+     */
+    int getOfferCount(PartyId party) {
+        return offerCounts.getOrDefault(party, 0);
+    }
+
+    /**
+     * @return the received bid with the highest utility for us, or null
+     */
+    Bid getBestReceivedBid() {
+        return bestReceivedBid;
+    }
+
+    /**
+     * @return utility for us of {@link #getBestReceivedBid()}, or 0 if there
+     * is no such bid.
+     */
+    double getBestReceivedUtility() {
+        return bestReceivedUtility;
+    }
+}
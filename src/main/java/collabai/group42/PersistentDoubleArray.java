@@ -0,0 +1,116 @@
+package collabai.group42;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size persistent array of doubles. The elements are stored in chunks
+ * of {@link #WIDTH}, so {@link #plus(int, double)} copies one chunk and the
+ * array of chunk references, and shares all other chunks between the old
+ * and the new array.
+ * <p>
+ * immutable.
+ */
+public final class PersistentDoubleArray {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final int size;
+    private final double[][] chunks;
+
+    private PersistentDoubleArray(int size, double[][] chunks) {
+        this.size = size;
+        this.chunks = chunks;
+    }
+
+    /**
+     * @param size  the number of elements
+     * @param value the initial value of every element
+     * @return array with size elements all equal to value
+     */
+    public static PersistentDoubleArray filled(int size, double value) {
+        double[][] chunks = new double[(size + MASK) >>> BITS][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new double[Math.min(WIDTH, size - (c << BITS))];
+            Arrays.fill(chunks[c], value);
+        }
+        return new PersistentDoubleArray(size, chunks);
+    }
+
+    /**
+     * @param index the index of the element
+     * @return the element at index
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "index " + index + " out of range [0," + size + ")");
+        }
+        return chunks[index >>> BITS][index & MASK];
+    }
+
+    /**
+     * @param index the index of the element
+     * @param delta the amount to add
+     * @return new array that is equal to this array except that delta is
+     * added to the element at index. This array is not changed.
+     */
+    public PersistentDoubleArray plus(int index, double delta) {
+        return with(index, get(index) + delta);
+    }
+
+    /**
+     * @param index the index of the element
+     * @param value the new value
+     * @return new array that is equal to this array except for the element
+     * at index. This array is not changed.
+     */
+    public PersistentDoubleArray with(int index, double value) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "index " + index + " out of range [0," + size + ")");
+        }
+        double[][] newchunks = chunks.clone();
+        double[] chunk = chunks[index >>> BITS].clone();
+        chunk[index & MASK] = value;
+        newchunks[index >>> BITS] = chunk;
+        return new PersistentDoubleArray(size, newchunks);
+    }
+
+    /**
+     * Adds many deltas at once, copying every touched chunk only once.
+     *
+     * @param indices the index of each delta
+     * @param deltas  the deltas, added in this order
+     * @param count   the number of deltas
+     * @return new array that is equal to this array except that the deltas
+     * are added. This array is not changed.
+     */
+    public PersistentDoubleArray plusAll(int[] indices, double[] deltas,
+                                         int count) {
+        double[][] newchunks = chunks.clone();
+        boolean[] copied = new boolean[chunks.length];
+        for (int n = 0; n < count; n++) {
+            int index = indices[n];
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(
+                        "index " + index + " out of range [0," + size + ")");
+            }
+            int c = index >>> BITS;
+            if (!copied[c]) {
+                newchunks[c] = chunks[c].clone();
+                copied[c] = true;
+            }
+            newchunks[c][index & MASK] += deltas[n];
+        }
+        return new PersistentDoubleArray(size, newchunks);
+    }
+
+    /**
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+}
@@ -0,0 +1,178 @@
+package collabai.group42;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size persistent array of ints, initially all 0. The elements are
+ * stored in a trie of chunks of {@link #WIDTH}, so {@link #plus(int, int)}
+ * copies one chunk and a path of trie nodes and shares everything else
+ * between the old and the new array. Chunks and nodes that were never
+ * written are not allocated, so a large array that is mostly 0 is cheap.
+ * <p>
+ * {@link #get(int)} is O(log32 n), which is effectively constant.
+ * <p>
+ * immutable.
+ */
+public final class PersistentIntArray {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final int size;
+    /**
+     * number of bits to shift an index to get the index in the root node.
+     * 0 if the root is a chunk.
+     */
+    private final int shift;
+    /**
+     * Object[WIDTH] inner node or int[WIDTH] chunk, null if all 0.
+     */
+    private final Object root;
+
+    private PersistentIntArray(int size, int shift, Object root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    /**
+     * @param size the number of elements
+     * @return array with size elements that are all 0
+     */
+    public static PersistentIntArray zeros(int size) {
+        int shift = 0;
+        while (shift < 30 && ((long) WIDTH << shift) < size) {
+            shift += BITS;
+        }
+        return new PersistentIntArray(size, shift, null);
+    }
+
+    /**
+     * @param index the index of the element
+     * @return the element at index
+     */
+    public int get(int index) {
+        checkIndex(index);
+        Object node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = ((Object[]) node)[(index >>> level) & MASK];
+        }
+        return node == null ? 0 : ((int[]) node)[index & MASK];
+    }
+
+    /**
+     * @param index the index of the element
+     * @param delta the amount to add
+     * @return new array that is equal to this array except that delta is
+     * added to the element at index. This array is not changed.
+     */
+    public PersistentIntArray plus(int index, int delta) {
+        checkIndex(index);
+        return new PersistentIntArray(size, shift,
+                plus(root, shift, index, delta));
+    }
+
+    private static Object plus(Object node, int level, int index, int delta) {
+        if (level == 0) {
+            int[] chunk = node == null ? new int[WIDTH] : ((int[]) node).clone();
+            chunk[index & MASK] += delta;
+            return chunk;
+        }
+        Object[] copy = node == null ? new Object[WIDTH]
+                : ((Object[]) node).clone();
+        int sub = (index >>> level) & MASK;
+        copy[sub] = plus(copy[sub], level - BITS, index, delta);
+        return copy;
+    }
+
+    /**
+     * Adds 1 at many indices at once, copying every touched chunk and node
+     * only once.
+     *
+     * @param indices the indices, an index may occur more than once. Not
+     *                changed.
+     * @param count   the number of indices
+     * @return new array that is equal to this array except that 1 is added
+     * at every index. This array is not changed.
+     */
+    public PersistentIntArray incrementAll(int[] indices, int count) {
+        if (count == 0) {
+            return this;
+        }
+        int[] sorted = Arrays.copyOf(indices, count);
+        Arrays.sort(sorted);
+        checkIndex(sorted[0]);
+        checkIndex(sorted[count - 1]);
+        return new PersistentIntArray(size, shift,
+                incrementAll(root, shift, sorted, 0, count));
+    }
+
+    /**
+     * @param sorted the indices, sorted. [from, to) are in the subtree of
+     *               node.
+     */
+    private static Object incrementAll(Object node, int level, int[] sorted,
+                                       int from, int to) {
+        if (level == 0) {
+            int[] chunk = node == null ? new int[WIDTH] : ((int[]) node).clone();
+            for (int n = from; n < to; n++) {
+                chunk[sorted[n] & MASK]++;
+            }
+            return chunk;
+        }
+        Object[] copy = node == null ? new Object[WIDTH]
+                : ((Object[]) node).clone();
+        for (int n = from; n < to; ) {
+            int sub = (sorted[n] >>> level) & MASK;
+            int end = n + 1;
+            while (end < to && ((sorted[end] >>> level) & MASK) == sub) {
+                end++;
+            }
+            copy[sub] = incrementAll(copy[sub], level - BITS, sorted, n, end);
+            n = end;
+        }
+        return copy;
+    }
+
+    /**
+     * @param from the index to start at
+     * @return the first index &gt;= from with a non-zero element, or -1 if
+     * there is none. Skips the parts of the array that were never written.
+     */
+    public int nextNonZero(int from) {
+        for (long index = Math.max(0, from); index < size; ) {
+            Object node = root;
+            int level = shift;
+            while (level > 0 && node != null) {
+                node = ((Object[]) node)[(int) (index >>> level) & MASK];
+                level -= BITS;
+            }
+            if (node == null) {
+                // skip the whole missing subtree
+                long span = 1L << (level + BITS);
+                index = (index & -span) + span;
+                continue;
+            }
+            if (((int[]) node)[(int) index & MASK] != 0) {
+                return (int) index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "index " + index + " out of range [0," + size + ")");
+        }
+    }
+
+}
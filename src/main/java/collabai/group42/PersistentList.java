@@ -0,0 +1,150 @@
+package collabai.group42;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Append-only persistent list. Elements are stored in chunks of
+ * {@link #WIDTH} in a shallow trie plus one partially filled tail chunk, so
+ * {@link #plus(Object)} copies at most one chunk and a path of trie nodes
+ * while all full chunks are shared between the old and the new list.
+ * <p>
+ * Appending is O(1) amortized, {@link #get(int)} is O(log32 n) which is
+ * effectively constant. The list can not be modified through the
+ * {@link java.util.List} interface.
+ * <p>
+ * immutable.
+ *
+ * @param <E> the type of the elements
+ */
+public final class PersistentList<E> extends AbstractList<E>
+        implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentList<Object> EMPTY = new PersistentList<>(
+            0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    /**
+     * number of bits to shift an index to get the index in the root node.
+     */
+    private final int shift;
+    /**
+     * Trie of full chunks. Inner nodes and chunks are Object[WIDTH].
+     */
+    private final Object[] root;
+    /**
+     * the last elements, not yet pushed into the trie. 0..WIDTH elements.
+     */
+    private final Object[] tail;
+
+    private PersistentList(int size, int shift, Object[] root,
+                           Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * @param <E> the type of the elements
+     * @return the empty list
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    /**
+     * @param element the element to append
+     * @return new list that has all elements of this list followed by
+     * element. This list is not changed.
+     */
+    public PersistentList<E> plus(E element) {
+        if (tail.length < WIDTH) {
+            Object[] newtail = Arrays.copyOf(tail, tail.length + 1);
+            newtail[tail.length] = element;
+            return new PersistentList<>(size + 1, shift, root, newtail);
+        }
+        // tail is full, push it into the trie.
+        Object[] newroot;
+        int newshift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            // root is full, add a level
+            newroot = new Object[WIDTH];
+            newroot[0] = root;
+            newroot[1] = newPath(shift, tail);
+            newshift += BITS;
+        } else {
+            newroot = pushTail(shift, root, tail);
+        }
+        return new PersistentList<>(size + 1, newshift, newroot,
+                new Object[]{element});
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "index " + index + " out of range [0," + size + ")");
+        }
+        return (E) chunkFor(index)[index & MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return index of the first element in the tail
+     */
+    private int tailOffset() {
+        return size - tail.length;
+    }
+
+    private Object[] chunkFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    /**
+     * @param level    the level of parent in the trie
+     * @param parent   the node to copy
+     * @param tailnode the full chunk to add
+     * @return copy of the path from parent down to the new chunk
+     */
+    private Object[] pushTail(int level, Object[] parent, Object[] tailnode) {
+        int subidx = ((size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        Object[] insert;
+        if (level == BITS) {
+            insert = tailnode;
+        } else {
+            Object[] child = (Object[]) parent[subidx];
+            insert = child != null ? pushTail(level - BITS, child, tailnode)
+                    : newPath(level - BITS, tailnode);
+        }
+        copy[subidx] = insert;
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+}
@@ -0,0 +1,134 @@
+package collabai.group42;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of our own utility per bid, shared by all versions of a
+ * {@link BoaState} in a session. Keys are compared with equals: the state
+ * uses the interned packed form of the received bids, and the packed bids
+ * of its codec, so equal bids share an entry whichever instance is looked
+ * up. A packed bid hashes its encoding once, unlike a Bid, whose hash code
+ * walks all its values.
+ * <p>
+ * When full, an entry is evicted with the CLOCK algorithm: the hand skips
+ * and clears the entries that were used since it last passed, and evicts the
+ * first entry that was not.
+ * <p>
+ * Thread safe.
+ */
+public final class UtilityCache {
+    /**
+     * the default number of entries.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Object[] keys;
+    private final double[] utilities;
+    private final boolean[] used;
+    private final Map<Object, Integer> slots = new HashMap<>();
+    private int hand = 0;
+    private long hits = 0, misses = 0;
+
+    public UtilityCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of entries, at least 1
+     */
+    public UtilityCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        keys = new Object[capacity];
+        utilities = new double[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * @param key the key of the bid
+     * @return the cached utility of the bid, or NaN if it is not in the
+     * cache. Counts a hit or a miss.
+     */
+    synchronized double get(Object key) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            misses++;
+            return Double.NaN;
+        }
+        hits++;
+        used[slot] = true;
+        return utilities[slot];
+    }
+
+    /**
+     * Adds an entry, evicting another one if the cache is full.
+     *
+     * @param key     the key of the bid
+     * @param utility the utility of the bid
+     */
+    synchronized void put(Object key, double utility) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = evict();
+            keys[slot] = key;
+            slots.put(key, slot);
+        }
+        utilities[slot] = utility;
+        used[slot] = false;
+    }
+
+    /**
+     * @return a free slot
+     */
+    private int evict() {
+        while (keys[hand] != null && used[hand]) {
+            used[hand] = false;
+            hand = (hand + 1) % keys.length;
+        }
+        int slot = hand;
+        if (keys[slot] != null) {
+            slots.remove(keys[slot]);
+        }
+        hand = (hand + 1) % keys.length;
+        return slot;
+    }
+
+    /**
+     * @return the number of lookups that found the bid
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find the bid
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of the lookups that found the bid, 0 if there
+     * were no lookups.
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0d : (double) hits / total;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return the maximum number of entries
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+}
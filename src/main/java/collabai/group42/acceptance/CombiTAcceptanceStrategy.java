@@ -1,11 +1,7 @@
 package collabai.group42.acceptance;
 
-import geniusweb.actions.Action;
-import geniusweb.actions.Offer;
 import collabai.group42.BoaState;
 import geniusweb.issuevalue.Bid;
-import geniusweb.profile.utilityspace.LinearAdditive;
-import geniusweb.profile.utilityspace.UtilitySpace;
 
 /**
  * Class for a acceptance condition called ACcombi(W). combines ACnext and a version of ACtime.
@@ -20,30 +16,18 @@ public class CombiTAcceptanceStrategy extends NextAcceptanceStrategy {
 
     @Override
     public Boolean isAcceptable(Bid bid, BoaState state) {
-        UtilitySpace utilSpace = (LinearAdditive) state.getProfile();
-
         // Check if better then next bid
         if (super.isAcceptable(bid, state)) {
             return true;
         }
 
-        double highestUtil = 0;
-        
-        // loop through action history
-        for (int i = state.getActionHistory().size() - 1; i >= 0; i--) {
-            Action action = state.getActionHistory().get(i);
-            
-            // if the current action is an offer made by the opponent
-            if (action.getActor() != state.getSettings().getID() && action instanceof Offer) {
-	            Offer offer = (Offer) action;
-	            if (highestUtil < utilSpace.getUtility(offer.getBid()).doubleValue()) highestUtil = utilSpace.getUtility(offer.getBid()).doubleValue();
-            }
-        }
+        // best offer of the opponent so far
+        double highestUtil = state.getBestReceivedUtility();
             
-//        System.out.println("best offer so far offer: " + highestUtil + "  this offer: " + utilSpace.getUtility(bid));
+//        System.out.println("best offer so far offer: " + highestUtil + "  this offer: " + state.getUtility(bid));
 
      // if past T and bid is the best bid we received so far.
-        if (state.getProgress().get(System.currentTimeMillis()) * a + b> T && utilSpace.getUtility(bid).doubleValue() > highestUtil) {
+        if (state.getProgress().get(System.currentTimeMillis()) * a + b> T && state.getUtility(bid) > highestUtil) {
             return true;
         }
 
@@ -1,8 +1,6 @@
 package collabai.group42.acceptance;
 
 import geniusweb.issuevalue.Bid;
-import geniusweb.profile.utilityspace.LinearAdditive;
-import geniusweb.profile.utilityspace.UtilitySpace;
 import collabai.group42.BoaState;
 
 /**
@@ -14,11 +12,9 @@ public class ConstAcceptanceStrategy implements AcceptanceStrategy {
 
     @Override
     public Boolean isAcceptable(Bid bid, BoaState state) {
-    	UtilitySpace utilSpace = (LinearAdditive) state.getProfile();
-    	
-//    	System.out.println("a: " + a + "  this offer: " + utilSpace.getUtility(bid));
+//    	System.out.println("a: " + a + "  this offer: " + state.getUtility(bid));
 
-        return utilSpace.getUtility(bid).doubleValue() >= a;
+        return state.getUtility(bid) >= a;
     }
 }
 
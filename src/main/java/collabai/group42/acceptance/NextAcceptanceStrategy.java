@@ -2,7 +2,6 @@ package collabai.group42.acceptance;
 
 import collabai.group42.BoaState;
 import geniusweb.issuevalue.Bid;
-import geniusweb.profile.utilityspace.UtilitySpace;
 
 
 //https://homepages.cwi.nl/~baarslag/pub/Acceptance_conditions_in_automated_negotiation.pdf
@@ -16,11 +15,9 @@ public class NextAcceptanceStrategy implements AcceptanceStrategy {
     public Boolean isAcceptable(Bid bid, BoaState state) {
         if (nextBid == null) return false;
 
-        UtilitySpace utilSpace = (UtilitySpace) state.getProfile();
+//        System.out.println("next offer: " + state.getUtility(nextBid) + "  this offer: " + state.getUtility(bid));
         
-//        System.out.println("next offer: " + utilSpace.getUtility(nextBid) + "  this offer: " + utilSpace.getUtility(bid));
-        
-        return (utilSpace.getUtility(bid).doubleValue() * a + b > utilSpace.getUtility(nextBid).doubleValue());
+        return (state.getUtility(bid) * a + b > state.getUtility(nextBid));
     }
 
     public void setNextBid(Bid bid) {
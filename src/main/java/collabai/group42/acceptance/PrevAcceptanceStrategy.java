@@ -1,9 +1,6 @@
 package collabai.group42.acceptance;
 
-import geniusweb.actions.Action;
-import geniusweb.actions.Offer;
 import geniusweb.issuevalue.Bid;
-import geniusweb.profile.utilityspace.UtilitySpace;
 import collabai.group42.BoaState;
 
 /**
@@ -16,26 +13,13 @@ public class PrevAcceptanceStrategy implements AcceptanceStrategy {
     
     @Override
     public Boolean isAcceptable(Bid bid, BoaState state) {
-    	UtilitySpace utilSpace = (UtilitySpace) state.getProfile();
-        Bid lastOffer = null;
-
-        // Loop through action history
-        for (int i = state.getActionHistory().size() - 1; i >= 0; i--) {
-            Action action = state.getActionHistory().get(i);
-            
-            // if the current action is an offer made by us
-            if (action.getActor() == state.getSettings().getID() && action instanceof Offer) {
-	            Offer offer = (Offer) action;
-	            lastOffer = offer.getBid();
-	            break; // last bid found
-            }
-        }
+        Bid lastOffer = state.getMyLastBid();
         
-//        System.out.println("last offer: " + utilSpace.getUtility(lastOffer) + "  this offer: " + utilSpace.getUtility(bid));
+//        System.out.println("last offer: " + state.getUtility(lastOffer) + "  this offer: " + state.getUtility(bid));
 
     	// There is no previous offer by the opponent, probably because it is the first move.
         if (lastOffer == null) return false; 
-        return utilSpace.getUtility(bid).doubleValue()*a + b > utilSpace.getUtility(lastOffer).doubleValue();
+        return state.getUtility(bid)*a + b > state.getUtility(lastOffer);
     }
 
 }
@@ -0,0 +1,74 @@
+package collabai.group42.acceptance;
+
+/**
+ * Maximum of the last values of a sequence, for a window that only shrinks
+ * relative to the end of the sequence: the start of the window,
+ * {@link #size()} - window, must never decrease. Kept as a monotonic deque
+ * of the values that can still become the maximum, so adding a value and
+ * querying the maximum are amortized O(1).
+ */
+final class WindowMax {
+    private long[] positions = new long[16];
+    private double[] values = new double[16];
+    /**
+     * the deque is at [head, tail) modulo the capacity. Values decrease from
+     * head to tail.
+     */
+    private int head = 0, tail = 0;
+    private long size = 0;
+
+    /**
+     * @param value the next value of the sequence
+     */
+    void add(double value) {
+        while (tail > head && values[(tail - 1) & mask()] <= value) {
+            tail--;
+        }
+        if (tail - head == positions.length) {
+            grow();
+        }
+        positions[tail & mask()] = size;
+        values[tail & mask()] = value;
+        tail++;
+        size++;
+    }
+
+    /**
+     * @param window the number of most recent values to consider
+     * @return the maximum of the last window values, or
+     * {@link Double#NEGATIVE_INFINITY} if window &lt;= 0 or there are no
+     * values.
+     */
+    double max(int window) {
+        long start = size - Math.max(0, window);
+        while (tail > head && positions[head & mask()] < start) {
+            head++;
+        }
+        return tail > head ? values[head & mask()] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return the number of values added so far
+     */
+    long size() {
+        return size;
+    }
+
+    private int mask() {
+        return positions.length - 1;
+    }
+
+    private void grow() {
+        int count = tail - head;
+        long[] newPositions = new long[positions.length * 2];
+        double[] newValues = new double[values.length * 2];
+        for (int n = 0; n < count; n++) {
+            newPositions[n] = positions[(head + n) & mask()];
+            newValues[n] = values[(head + n) & mask()];
+        }
+        positions = newPositions;
+        values = newValues;
+        head = 0;
+        tail = count;
+    }
+}
@@ -0,0 +1,399 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Draws bids uniformly from a utility band without listing the band.
+ * <p>
+ * The weighted utility of every value is rounded to a multiple of a quantum.
+ * A dynamic program over the issues then counts, for every quantized total
+ * s, how many bids the issues i..n-1 can make that add up to s. A sample is
+ * drawn top down: first a total from the band, then for each issue a bucket
+ * in proportion to the number of completions, then a value inside the
+ * bucket. Because rounding moves the total by at most n/2 quanta, the band
+ * is widened by that much and drawn bids outside the exact band are
+ * rejected, so the accepted bids are uniform over the exact band.
+ * <p>
+ * The counts are doubles, so domains of any size can be counted. Issues with
+ * more than {@link #MAX_VALUES} values are not supported, see
+ * {@link #isSupported(CompiledUtilSpace)}.
+ * <p>
+ * immutable.
+ */
+public class BandSampler {
+    /**
+     * issues with more values than this are not supported.
+     */
+    public static final long MAX_VALUES = 1 << 20;
+    /**
+     * the highest total utility is divided in this many quanta.
+     */
+    private static final int RESOLUTION = 10000;
+    /**
+     * number of rejected draws after which a sample gives up.
+     */
+    private static final int MAX_REJECTS = 1000;
+    private static final double EPSILON = 1e-9;
+
+    private final CompiledUtilSpace space;
+    private final double quantum;
+    /**
+     * per issue: the non-empty buckets ascending, and for each bucket the
+     * range [start[b], start[b+1]) in values[] of the ordinals in it.
+     */
+    private final int[][] buckets;
+    private final int[][] start;
+    private final int[][] values;
+    /**
+     * count[i][s]: number of bids of issues i..n-1 with quantized total s.
+     */
+    private final double[][] count;
+    /**
+     * prefix[s]: number of bids with quantized total &lt; s.
+     */
+    private final double[] prefix;
+    /**
+     * the gaps in the histogram of the quantized totals: the highest
+     * non-empty total &lt;= s, or -1, and the lowest non-empty total &gt;= s,
+     * or the number of totals.
+     */
+    private final int[] lastNonEmpty, firstNonEmpty;
+
+    /**
+     * @param space the compiled profile, all issues must have at most
+     *              {@link #MAX_VALUES} values.
+     */
+    public BandSampler(CompiledUtilSpace space) {
+        if (!isSupported(space)) {
+            throw new IllegalArgumentException(
+                    "issues with more than " + MAX_VALUES + " values are not supported");
+        }
+        this.space = space;
+        int n = space.getNumIssues();
+        double maxTotal = 0;
+        for (int i = 0; i < n; i++) {
+            maxTotal += space.getMaxUtil(i);
+        }
+        quantum = maxTotal > 0 ? maxTotal / RESOLUTION : 1;
+
+        buckets = new int[n][];
+        start = new int[n][];
+        values = new int[n][];
+        int[] maxBucket = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            quantize(i);
+            int[] b = buckets[i];
+            maxBucket[i] = b.length == 0 ? 0 : b[b.length - 1];
+        }
+
+        count = new double[n + 1][];
+        count[n] = new double[]{1};
+        for (int i = n - 1; i >= 0; i--) {
+            double[] next = count[i + 1];
+            double[] cur = new double[next.length + maxBucket[i]];
+            for (int k = 0; k < buckets[i].length; k++) {
+                int b = buckets[i][k];
+                double size = start[i][k + 1] - start[i][k];
+                for (int s = 0; s < next.length; s++) {
+                    cur[s + b] += size * next[s];
+                }
+            }
+            count[i] = cur;
+        }
+        prefix = new double[count[0].length + 1];
+        for (int s = 0; s < count[0].length; s++) {
+            prefix[s + 1] = prefix[s] + count[0][s];
+        }
+
+        int totals = count[0].length;
+        lastNonEmpty = new int[totals];
+        firstNonEmpty = new int[totals];
+        for (int s = 0, last = -1; s < totals; s++) {
+            if (count[0][s] > 0) {
+                last = s;
+            }
+            lastNonEmpty[s] = last;
+        }
+        for (int s = totals - 1, first = totals; s >= 0; s--) {
+            if (count[0][s] > 0) {
+                first = s;
+            }
+            firstNonEmpty[s] = first;
+        }
+    }
+
+    /**
+     * Group the values of issue i on their bucket, counting sort.
+     */
+    private void quantize(int i) {
+        int size = (int) space.getNumValues(i);
+        int[] bucketOf = new int[size];
+        int maxB = 0;
+        for (int o = 0; o < size; o++) {
+            bucketOf[o] = bucket(space.getWeightedUtil(i, o));
+            maxB = Math.max(maxB, bucketOf[o]);
+        }
+        int[] sizes = new int[maxB + 2];
+        for (int o = 0; o < size; o++) {
+            sizes[bucketOf[o] + 1]++;
+        }
+        int nonEmpty = 0;
+        for (int b = 0; b <= maxB; b++) {
+            if (sizes[b + 1] > 0) {
+                nonEmpty++;
+            }
+            sizes[b + 1] += sizes[b];
+        }
+        int[] vals = new int[size];
+        int[] fill = sizes.clone();
+        for (int o = 0; o < size; o++) {
+            vals[fill[bucketOf[o]]++] = o;
+        }
+        int[] bs = new int[nonEmpty];
+        int[] st = new int[nonEmpty + 1];
+        int k = 0;
+        for (int b = 0; b <= maxB; b++) {
+            if (sizes[b + 1] > sizes[b]) {
+                bs[k] = b;
+                st[k] = sizes[b];
+                k++;
+            }
+        }
+        st[nonEmpty] = size;
+        buckets[i] = bs;
+        start[i] = st;
+        values[i] = vals;
+    }
+
+    private int bucket(double util) {
+        return (int) Math.max(0, Math.round(util / quantum));
+    }
+
+    /**
+     * @param space the compiled profile
+     * @return true iff a {@link BandSampler} can be made for space
+     */
+    public static boolean isSupported(CompiledUtilSpace space) {
+        for (int i = 0; i < space.getNumIssues(); i++) {
+            if (space.getNumValues(i) > MAX_VALUES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param min the lowest utility
+     * @param max the highest utility
+     * @return estimate of the number of bids with utility in [min, max]. It
+     * counts the bids with a quantized utility in the band, so bids that
+     * are within a few quanta of the band edges may be counted wrongly.
+     */
+    public double count(double min, double max) {
+        if (min > max) {
+            return 0;
+        }
+        return prefix[clamp(bucketFloor(max) + 1)] - prefix[clamp(bucketCeil(min))];
+    }
+
+    /**
+     * Moves the lower end of the band [min, max] so that it holds between
+     * kMin and kMax bids by {@link #count(double, double)}, where possible.
+     * The band can only be moved by whole quanta, so it may still hold more
+     * than kMax bids if they all have the same quantized utility.
+     *
+     * @param min  the lowest utility of the band
+     * @param max  the highest utility of the band
+     * @param kMin the minimum number of bids. If there are fewer bids up to
+     *             max, the band is extended to all of them.
+     * @param kMax the maximum number of bids, at least kMin
+     * @return the new lowest utility of the band, min if it holds between
+     * kMin and kMax bids.
+     */
+    public double getLow(double min, double max, double kMin, double kMax) {
+        if (kMin > kMax) {
+            throw new IllegalArgumentException("kMin must be at most kMax");
+        }
+        int to = clamp(bucketFloor(max) + 1);
+        int from = Math.min(to, clamp(bucketCeil(min)));
+        double n = prefix[to] - prefix[from];
+        int s;
+        if (n < kMin) {
+            // last s <= from with at least kMin bids in [s, to)
+            s = search(0, from, prefix[to] - kMin);
+        } else if (n > kMax) {
+            // first s >= from with at most kMax bids in [s, to)
+            s = from;
+            int hi = to;
+            while (s < hi) {
+                int mid = (s + hi) >>> 1;
+                if (prefix[mid] < prefix[to] - kMax) {
+                    s = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            // but keep at least the highest non-empty total
+            s = Math.min(s, lastNonEmpty[to - 1]);
+        } else {
+            return min;
+        }
+        return s * quantum;
+    }
+
+    /**
+     * @return the last s in [lo, hi] with prefix[s] &lt;= x, or lo if there
+     * is none.
+     */
+    private int search(int lo, int hi, double x) {
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (prefix[mid] <= x) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param util a utility
+     * @return estimate of the highest utility of a bid that is at most util,
+     * or NaN if there is no such bid. The estimate is a quantized total, so
+     * it can be off by (n + 1) / 2 quanta for n issues.
+     */
+    public double getUtilityBelow(double util) {
+        int s = Math.min(bucketFloor(util), lastNonEmpty.length - 1);
+        if (s < 0 || lastNonEmpty[s] < 0) {
+            return Double.NaN;
+        }
+        return lastNonEmpty[s] * quantum;
+    }
+
+    /**
+     * @param util a utility
+     * @return estimate of the lowest utility of a bid that is at least util,
+     * or NaN if there is no such bid. Off by as much as
+     * {@link #getUtilityBelow(double)}.
+     */
+    public double getUtilityAbove(double util) {
+        int s = Math.max(bucketCeil(util), 0);
+        if (s >= firstNonEmpty.length || firstNonEmpty[s] == firstNonEmpty.length) {
+            return Double.NaN;
+        }
+        return firstNonEmpty[s] * quantum;
+    }
+
+    /**
+     * @param min    the lowest utility
+     * @param max    the highest utility
+     * @param k      number of bids to draw
+     * @param random the source of randomness
+     * @return k bids drawn uniformly with replacement from the bids with
+     * utility in [min, max]. Empty if there are no such bids. May be shorter
+     * than k if the band is so narrow that too many draws are rejected.
+     */
+    public List<Bid> sample(double min, double max, int k, Random random) {
+        List<Bid> bids = new ArrayList<>();
+        if (min > max) {
+            return bids;
+        }
+        int n = space.getNumIssues();
+        int slack = (n + 1) / 2 + 1;
+        int from = clamp(bucketCeil(min) - slack);
+        int to = clamp(bucketFloor(max) + 1 + slack);
+        double total = prefix[to] - prefix[from];
+        if (total <= 0) {
+            return bids;
+        }
+        long[] ordinals = new long[n];
+        int rejects = 0;
+        while (bids.size() < k && rejects < MAX_REJECTS) {
+            int s = drawTotal(from, to, total, random);
+            for (int i = 0; i < n; i++) {
+                s -= drawValue(i, s, random, ordinals);
+            }
+            double util = space.getUtility(ordinals);
+            if (util >= min - EPSILON && util <= max + EPSILON) {
+                bids.add(space.getBid(ordinals));
+            } else {
+                rejects++;
+            }
+        }
+        return bids;
+    }
+
+    /**
+     * @return a quantized total in [from, to), drawn in proportion to the
+     * number of bids with that total.
+     */
+    private int drawTotal(int from, int to, double total, Random random) {
+        double x = prefix[from] + random.nextDouble() * total;
+        int lo = from, hi = to - 1;
+        // last s with prefix[s] <= x
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (prefix[mid] <= x) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        while (count[0][lo] == 0 && lo > from) {
+            lo--;
+        }
+        return lo;
+    }
+
+    /**
+     * Draw a value for issue i such that issues i..n-1 add up to s, and
+     * store its ordinal.
+     *
+     * @return the bucket of the drawn value
+     */
+    private int drawValue(int i, int s, Random random, long[] ordinals) {
+        double[] next = count[i + 1];
+        int[] bs = buckets[i];
+        int[] st = start[i];
+        double total = 0;
+        for (int k = 0; k < bs.length; k++) {
+            int rest = s - bs[k];
+            if (rest >= 0 && rest < next.length) {
+                total += (st[k + 1] - st[k]) * next[rest];
+            }
+        }
+        double x = random.nextDouble() * total;
+        int chosen = -1;
+        for (int k = 0; k < bs.length; k++) {
+            int rest = s - bs[k];
+            if (rest >= 0 && rest < next.length && next[rest] > 0) {
+                chosen = k;
+                x -= (st[k + 1] - st[k]) * next[rest];
+                if (x < 0) {
+                    break;
+                }
+            }
+        }
+        int pos = st[chosen] + random.nextInt(st[chosen + 1] - st[chosen]);
+        ordinals[i] = values[i][pos];
+        return bs[chosen];
+    }
+
+    private int bucketCeil(double util) {
+        return (int) Math.ceil(util / quantum - 0.5 - EPSILON);
+    }
+
+    private int bucketFloor(double util) {
+        return (int) Math.floor(util / quantum + 0.5 + EPSILON);
+    }
+
+    private int clamp(int s) {
+        return Math.max(0, Math.min(s, prefix.length - 1));
+    }
+
+}
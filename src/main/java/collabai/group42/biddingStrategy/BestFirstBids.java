@@ -0,0 +1,164 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Lazy enumeration of all bids in descending utility, without enumerating
+ * the domain. The values of every issue are sorted descending on utility, and
+ * a bid is a vector of ranks into these lists. The best bid has rank 0
+ * everywhere; a priority queue holds the frontier of bids that are not yet
+ * returned.
+ * <p>
+ * Every bid other than the best has one parent: the bid with the rank of its
+ * last issue with a non-zero rank one lower. Popping a bid pushes its
+ * children: the rank of that last issue, or of any later issue, one higher.
+ * Children are never better than their parent, so bids come out in
+ * descending utility, each exactly once, and the first N bids cost
+ * O(N n log(N n)) for n issues.
+ * <p>
+ * Issues with more than {@link #MAX_VALUES} values are not supported, see
+ * {@link #isSupported(CompiledUtilSpace)}.
+ * <p>
+ * immutable, the iterators are not thread safe.
+ */
+public class BestFirstBids implements Iterable<Bid> {
+    /**
+     * issues with more values than this are not supported.
+     */
+    public static final long MAX_VALUES = 1 << 16;
+
+    private final CompiledUtilSpace space;
+    /**
+     * per issue: ordinals sorted descending on utility, and the matching
+     * utilities.
+     */
+    private final int[][] order;
+    private final double[][] sortedUtils;
+
+    /**
+     * @param space the compiled profile, all issues must have at most
+     *              {@link #MAX_VALUES} values.
+     */
+    public BestFirstBids(CompiledUtilSpace space) {
+        if (!isSupported(space)) {
+            throw new IllegalArgumentException(
+                    "issues with more than " + MAX_VALUES + " values are not supported");
+        }
+        this.space = space;
+        int n = space.getNumIssues();
+        order = new int[n][];
+        sortedUtils = new double[n][];
+        for (int i = 0; i < n; i++) {
+            sortIssue(i);
+        }
+    }
+
+    private void sortIssue(int i) {
+        int size = (int) space.getNumValues(i);
+        Integer[] ords = new Integer[size];
+        for (int o = 0; o < size; o++) {
+            ords[o] = o;
+        }
+        Arrays.sort(ords, (x, y) -> Double.compare(space.getWeightedUtil(i, y),
+                space.getWeightedUtil(i, x)));
+        order[i] = new int[size];
+        sortedUtils[i] = new double[size];
+        for (int o = 0; o < size; o++) {
+            order[i][o] = ords[o];
+            sortedUtils[i][o] = space.getWeightedUtil(i, ords[o]);
+        }
+    }
+
+    /**
+     * @param space the compiled profile
+     * @return true iff a {@link BestFirstBids} can be made for space
+     */
+    public static boolean isSupported(CompiledUtilSpace space) {
+        for (int i = 0; i < space.getNumIssues(); i++) {
+            if (space.getNumValues(i) > MAX_VALUES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return iterator over all bids, descending utility. Empty if an issue
+     * has no values.
+     */
+    @Override
+    public Iterator<Bid> iterator() {
+        return new Search();
+    }
+
+    /**
+     * A bid on the frontier.
+     */
+    private static final class Node implements Comparable<Node> {
+        final int[] ranks;
+        /**
+         * the last issue with a non-zero rank, 0 for the best bid.
+         */
+        final int last;
+        final double utility;
+
+        Node(int[] ranks, int last, double utility) {
+            this.ranks = ranks;
+            this.last = last;
+            this.utility = utility;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return Double.compare(other.utility, utility);
+        }
+    }
+
+    private class Search implements Iterator<Bid> {
+        private final PriorityQueue<Node> frontier = new PriorityQueue<>();
+
+        Search() {
+            int n = order.length;
+            double best = 0;
+            for (int i = 0; i < n; i++) {
+                if (order[i].length == 0) {
+                    return;
+                }
+                best += sortedUtils[i][0];
+            }
+            frontier.add(new Node(new int[n], 0, best));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !frontier.isEmpty();
+        }
+
+        @Override
+        public Bid next() {
+            Node node = frontier.poll();
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            for (int i = node.last; i < order.length; i++) {
+                int rank = node.ranks[i];
+                if (rank + 1 < order[i].length) {
+                    int[] ranks = node.ranks.clone();
+                    ranks[i] = rank + 1;
+                    frontier.add(new Node(ranks, i, node.utility
+                            - sortedUtils[i][rank] + sortedUtils[i][rank + 1]));
+                }
+            }
+            long[] ordinals = new long[order.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = order[i][node.ranks[i]];
+            }
+            return space.getBid(ordinals);
+        }
+    }
+}
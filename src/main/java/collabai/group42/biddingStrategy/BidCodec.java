@@ -0,0 +1,289 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.Domain;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import tudelft.utilities.immutablelist.Range;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the bids of a domain as bit fields in an array of longs, one field
+ * per issue. A field holds the ordinal of the value plus one, or 0 if the
+ * issue is missing in the bid or has a value that is not in the domain. As
+ * in {@link CompiledUtilSpace}, issues are in alphabetical order and the
+ * ordinal of a value is its position in the issue's {@link ValueSet}.
+ * <p>
+ * A field never straddles two longs, so most domains fit in a single long.
+ * Comparing two encoded bids is then an XOR, and counting the issues in
+ * which they differ a popcount, see {@link #countDifferences(PackedBid,
+ * PackedBid)}.
+ * <p>
+ * The codec also interns bids: {@link #intern(Bid)} returns the same
+ * {@link PackedBid} for all bids with the same values, and interning the
+ * same {@link Bid} instance again is a lookup by identity. The pool holds at
+ * most a fixed number of bids, after which bids are encoded but no longer
+ * interned. A codec is made per session, and passed to the opponent models
+ * so that they share its pool with the state.
+ * <p>
+ * Thread safe.
+ */
+public final class BidCodec {
+    /**
+     * the default maximum number of interned bids.
+     */
+    public static final int DEFAULT_POOL_SIZE = 1 << 16;
+
+    private final Domain domain;
+    private final String[] issues;
+    private final ValueSet[] valueSets;
+    private final long[] sizes;
+    /**
+     * value to ordinal, only for discrete issues.
+     */
+    private final List<Map<Value, Integer>> ordinals;
+    /**
+     * position of the field of each issue: the index of the long and the
+     * shift within it.
+     */
+    private final int[] word, shift;
+    private final long[] fieldMask;
+    /**
+     * per long: the top bit of every field, and all the other field bits.
+     */
+    private final long[] highBits, lowBits;
+    private final int poolSize;
+    private final Map<PackedBid, PackedBid> pool = new HashMap<>();
+    private final Map<Bid, PackedBid> byInstance = new IdentityHashMap<>();
+
+    /**
+     * @param domain the domain of the bids
+     */
+    public BidCodec(Domain domain) {
+        this(domain, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param domain   the domain of the bids
+     * @param poolSize the maximum number of bids that are interned, and of
+     *                 bid instances that are remembered
+     */
+    public BidCodec(Domain domain, int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("poolSize must be at least 0");
+        }
+        this.domain = domain;
+        this.poolSize = poolSize;
+        List<String> sorted = new ArrayList<>(domain.getIssues());
+        Collections.sort(sorted);
+        int n = sorted.size();
+        issues = sorted.toArray(new String[n]);
+        valueSets = new ValueSet[n];
+        sizes = new long[n];
+        ordinals = new ArrayList<>(Collections.nCopies(n, null));
+        word = new int[n];
+        shift = new int[n];
+        fieldMask = new long[n];
+
+        int w = 0, used = 0;
+        for (int i = 0; i < n; i++) {
+            valueSets[i] = domain.getValues(issues[i]);
+            sizes[i] = valueSets[i].size().longValueExact();
+            if (!(valueSets[i] instanceof NumberValueSet)) {
+                Map<Value, Integer> ords = new HashMap<>();
+                for (Value value : valueSets[i]) {
+                    ords.put(value, ords.size());
+                }
+                ordinals.set(i, ords);
+            }
+            // room for the ordinals 0..size-1 plus 1, and 0 for no value
+            int width = 64 - Long.numberOfLeadingZeros(sizes[i]);
+            width = Math.max(1, width);
+            if (used + width > 64) {
+                w++;
+                used = 0;
+            }
+            word[i] = w;
+            shift[i] = used;
+            fieldMask[i] = width == 64 ? -1L : (1L << width) - 1;
+            used += width;
+        }
+
+        int numWords = n == 0 ? 0 : w + 1;
+        highBits = new long[numWords];
+        lowBits = new long[numWords];
+        for (int i = 0; i < n; i++) {
+            long mask = fieldMask[i] << shift[i];
+            long top = Long.highestOneBit(mask);
+            highBits[word[i]] |= top;
+            lowBits[word[i]] |= mask & ~top;
+        }
+    }
+
+    /**
+     * @param bid the bid, may be partial
+     * @return the encoded bid, not interned
+     */
+    public PackedBid encode(Bid bid) {
+        long[] words = new long[highBits.length];
+        boolean complete = true;
+        for (int i = 0; i < issues.length; i++) {
+            Value value = bid.getValue(issues[i]);
+            long ord = value == null ? -1 : getOrdinal(i, value);
+            if (ord < 0) {
+                complete = false;
+            } else {
+                words[word[i]] |= (ord + 1) << shift[i];
+            }
+        }
+        return new PackedBid(bid, words, complete);
+    }
+
+    /**
+     * @param bid the bid, may be partial
+     * @return the interned encoding of bid. Equal bids give the same
+     * instance, as long as the pool is not full. After that a bid that was
+     * not seen before is encoded anew, which is equal but not the same.
+     */
+    public synchronized PackedBid intern(Bid bid) {
+        PackedBid packed = byInstance.get(bid);
+        if (packed == null) {
+            PackedBid encoded = encode(bid);
+            packed = pool.get(encoded);
+            if (packed == null) {
+                if (pool.size() >= poolSize) {
+                    return encoded;
+                }
+                packed = encoded;
+                pool.put(packed, packed);
+            }
+            if (byInstance.size() < poolSize) {
+                byInstance.put(bid, packed);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * @return the number of interned bids
+     */
+    public synchronized int getPoolSize() {
+        return pool.size();
+    }
+
+    /**
+     * @param bid a bid
+     * @return the interned encoding of bid if this very instance was
+     * interned before, else null. Never encodes.
+     */
+    public synchronized PackedBid getInterned(Bid bid) {
+        return byInstance.get(bid);
+    }
+
+    /**
+     * @param bid   the encoded bid
+     * @param issue the issue index
+     * @return the ordinal of the value of the issue, or -1 if the bid has no
+     * value of the domain for the issue.
+     */
+    public long getOrdinal(PackedBid bid, int issue) {
+        return ((bid.words[word[issue]] >>> shift[issue]) & fieldMask[issue])
+                - 1;
+    }
+
+    /**
+     * @param bid the encoded bid
+     * @return a new bid with the values of the encoded bid. Issues without a
+     * value of the domain are left out.
+     */
+    public Bid decode(PackedBid bid) {
+        Map<String, Value> values = new HashMap<>();
+        for (int i = 0; i < issues.length; i++) {
+            long ord = getOrdinal(bid, i);
+            if (ord >= 0) {
+                values.put(issues[i], valueSets[i].get(BigInteger.valueOf(ord)));
+            }
+        }
+        return new Bid(values);
+    }
+
+    /**
+     * @return the number of issues in which the encodings differ. Values
+     * that are not in the domain are all encoded as no value, so they do
+     * not differ from each other.
+     */
+    public int countDifferences(PackedBid first, PackedBid second) {
+        int count = 0;
+        for (int w = 0; w < highBits.length; w++) {
+            long x = first.words[w] ^ second.words[w];
+            // the top bit of a field is set if any other bit of it carries
+            long carried = ((x & lowBits[w]) + lowBits[w]) | x;
+            count += Long.bitCount(carried & highBits[w]);
+        }
+        return count;
+    }
+
+    /**
+     * @param issue the issue index
+     * @return true iff the encodings differ in the issue
+     */
+    public boolean isChanged(PackedBid first, PackedBid second, int issue) {
+        long x = first.words[word[issue]] ^ second.words[word[issue]];
+        return ((x >>> shift[issue]) & fieldMask[issue]) != 0;
+    }
+
+    /**
+     * @return the number of longs per encoded bid
+     */
+    public int getNumWords() {
+        return highBits.length;
+    }
+
+    /**
+     * @return the number of issues
+     */
+    public int getNumIssues() {
+        return issues.length;
+    }
+
+    /**
+     * @param issue the issue index
+     * @return the name of the issue
+     */
+    public String getIssue(int issue) {
+        return issues[issue];
+    }
+
+    public Domain getDomain() {
+        return domain;
+    }
+
+    private long getOrdinal(int issue, Value value) {
+        Map<Value, Integer> ords = ordinals.get(issue);
+        if (ords != null) {
+            Integer ord = ords.get(value);
+            return ord == null ? -1 : ord;
+        }
+        if (!(value instanceof NumberValue)) {
+            return -1;
+        }
+        Range range = ((NumberValueSet) valueSets[issue]).getRange();
+        BigDecimal[] div = ((NumberValue) value).getValue()
+                .subtract(range.getLow()).divideAndRemainder(range.getStep());
+        if (div[1].signum() != 0 || div[0].signum() < 0
+                || div[0].compareTo(BigDecimal.valueOf(sizes[issue])) >= 0) {
+            return -1;
+        }
+        return div[0].longValue();
+    }
+}
@@ -0,0 +1,252 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Lazy enumeration of the bids with a utility inside an interval, for domains
+ * that are too large to list. The bids are found with a depth first search
+ * over the issues. At every issue, only the values for which the remaining
+ * issues can still reach the interval are tried, so the cost of a query
+ * depends on the number of bids that is retrieved rather than on the number
+ * of bids in the interval.
+ * <p>
+ * For issues with a table in the {@link CompiledUtilSpace}, the values are
+ * kept sorted on utility so that the feasible values are found with a binary
+ * search. Other issues are scanned.
+ * <p>
+ * immutable, the iterators are not thread safe.
+ */
+public class BidEnumerator {
+    /**
+     * slack when comparing utilities, to make up for rounding.
+     */
+    private static final double EPSILON = 1e-9;
+
+    private final CompiledUtilSpace space;
+    /**
+     * for sorted issues: ordinals sorted ascending on utility, and the
+     * matching utilities. null for issues that are scanned.
+     */
+    private final int[][] order;
+    private final double[][] sortedUtils;
+    /**
+     * lowest and highest utility that issues i..n-1 together can contribute.
+     */
+    private final double[] minRest, maxRest;
+
+    /**
+     * @param space the compiled profile
+     */
+    public BidEnumerator(CompiledUtilSpace space) {
+        this.space = space;
+        int n = space.getNumIssues();
+        order = new int[n][];
+        sortedUtils = new double[n][];
+        minRest = new double[n + 1];
+        maxRest = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (space.getNumValues(i) <= 1 << 16) {
+                sortIssue(i);
+            }
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            minRest[i] = minRest[i + 1] + space.getMinUtil(i);
+            maxRest[i] = maxRest[i + 1] + space.getMaxUtil(i);
+        }
+    }
+
+    private void sortIssue(int i) {
+        int size = (int) space.getNumValues(i);
+        Integer[] ords = new Integer[size];
+        for (int o = 0; o < size; o++) {
+            ords[o] = o;
+        }
+        Arrays.sort(ords, (x, y) -> Double.compare(space.getWeightedUtil(i, x),
+                space.getWeightedUtil(i, y)));
+        order[i] = new int[size];
+        sortedUtils[i] = new double[size];
+        for (int o = 0; o < size; o++) {
+            order[i][o] = ords[o];
+            sortedUtils[i][o] = space.getWeightedUtil(i, ords[o]);
+        }
+    }
+
+    /**
+     * @param min the lowest utility
+     * @param max the highest utility
+     * @return iterator over all bids with utility in [min, max], each bid
+     * exactly once.
+     */
+    public Iterator<Bid> iterator(double min, double max) {
+        return new Search(min, max, null);
+    }
+
+    /**
+     * @param min    the lowest utility
+     * @param max    the highest utility
+     * @param random the source of randomness
+     * @return iterator over bids with utility in [min, max]. Every bid
+     * starts a new search from a random point, so bids may be
+     * returned more than once and the iterator does not end unless there
+     * are no bids in [min, max].
+     */
+    public Iterator<Bid> iterator(double min, double max, Random random) {
+        return new Search(min, max, random);
+    }
+
+    /**
+     * @param min    the lowest utility
+     * @param max    the highest utility
+     * @param k      the maximum number of bids to return
+     * @param random the source of randomness, or null to get the first bids
+     *               in search order without duplicates.
+     * @return at most k bids with utility in [min, max]
+     */
+    public List<Bid> getBids(double min, double max, int k, Random random) {
+        Iterator<Bid> it = random == null ? iterator(min, max)
+                : iterator(min, max, random);
+        List<Bid> bids = new ArrayList<>();
+        while (bids.size() < k && it.hasNext()) {
+            bids.add(it.next());
+        }
+        return bids;
+    }
+
+    /**
+     * Depth first search with an explicit stack. At depth d, the values of
+     * issue d in the window [lo, lo + count) are tried, starting at offset
+     * start and wrapping around.
+     */
+    private class Search implements Iterator<Bid> {
+        private final double min, max;
+        private final Random random;
+        private final int n = space.getNumIssues();
+        private final long[] lo = new long[n], count = new long[n],
+                start = new long[n], tried = new long[n], ordinals = new long[n];
+        /**
+         * sum[d] is the utility of the values chosen for issues 0..d-1.
+         */
+        private final double[] sum = new double[n + 1];
+        private int depth;
+        private boolean exhausted = false;
+        private Bid next = null;
+
+        Search(double min, double max, Random random) {
+            this.min = min;
+            this.max = max;
+            this.random = random;
+            restart();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !exhausted) {
+                if (random != null) {
+                    restart();
+                }
+                next = find();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Bid next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Bid bid = next;
+            next = null;
+            return bid;
+        }
+
+        private void restart() {
+            depth = 0;
+            if (n > 0) {
+                open(0);
+            }
+        }
+
+        /**
+         * Prepare the window of values to try at depth d, given sum[d].
+         */
+        private void open(int d) {
+            tried[d] = 0;
+            if (order[d] != null) {
+                double[] utils = sortedUtils[d];
+                lo[d] = lowerBound(utils, min - sum[d] - maxRest[d + 1] - EPSILON);
+                long hi = lowerBound(utils,
+                        Math.nextUp(max - sum[d] - minRest[d + 1] + EPSILON));
+                count[d] = Math.max(0, hi - lo[d]);
+            } else {
+                lo[d] = 0;
+                count[d] = space.getNumValues(d);
+            }
+            start[d] = random == null || count[d] == 0 ? 0
+                    : (long) (random.nextDouble() * count[d]);
+        }
+
+        /**
+         * @return the next bid in the search, or null if there is none.
+         */
+        private Bid find() {
+            if (n == 0) {
+                exhausted = true;
+                return null;
+            }
+            while (true) {
+                if (depth == n) {
+                    depth = n - 1;
+                    if (sum[n] >= min - EPSILON && sum[n] <= max + EPSILON) {
+                        return space.getBid(ordinals);
+                    }
+                    continue;
+                }
+                if (tried[depth] == count[depth]) {
+                    if (depth == 0) {
+                        exhausted = true;
+                        return null;
+                    }
+                    depth--;
+                    continue;
+                }
+                long pos = lo[depth] + (start[depth] + tried[depth]++) % count[depth];
+                long ordinal = order[depth] != null ? order[depth][(int) pos] : pos;
+                double util = sum[depth] + space.getWeightedUtil(depth, ordinal);
+                if (util + maxRest[depth + 1] < min - EPSILON
+                        || util + minRest[depth + 1] > max + EPSILON) {
+                    continue;
+                }
+                ordinals[depth] = ordinal;
+                sum[depth + 1] = util;
+                depth++;
+                if (depth < n) {
+                    open(depth);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return first position in sorted with value &gt;= x
+     */
+    private static int lowerBound(double[] sorted, double x) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < x) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+}
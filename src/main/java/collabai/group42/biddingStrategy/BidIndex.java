@@ -0,0 +1,355 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.Value;
+import tudelft.utilities.immutablelist.AbstractImmutableList;
+import tudelft.utilities.immutablelist.ImmutableList;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * All bids of a domain that are at least as good as the reservation value,
+ * sorted on our own utility. Built once, after which interval and nearest
+ * utility queries are binary searches. Bids are stored as a compact code:
+ * the value ordinals of the {@link CompiledUtilSpace} in mixed radix.
+ * <p>
+ * Only suited for small and medium domains, see {@link #MAX_BIDS}.
+ * <p>
+ * immutable.
+ */
+public class BidIndex {
+    /**
+     * domains with more bids than this are not indexed.
+     */
+    public static final long MAX_BIDS = 1L << 20;
+    /**
+     * slack when comparing utilities, to make up for rounding.
+     */
+    private static final double EPSILON = 1e-9;
+
+    private final CompiledUtilSpace space;
+    /**
+     * code = sum of ordinal[i] * radix[i]
+     */
+    private final long[] radix;
+    /**
+     * the codes and utilities of the bids, ascending utility.
+     */
+    private final long[] codes;
+    private final double[] utils;
+
+    /**
+     * @param space   the compiled profile. Its domain must have at most
+     *                {@link #MAX_BIDS} bids.
+     * @param minUtil bids with utility below this are left out, typically
+     *                the reservation value.
+     */
+    public BidIndex(CompiledUtilSpace space, double minUtil) {
+        this.space = space;
+        int n = space.getNumIssues();
+        radix = new long[n];
+        long total = 1;
+        for (int i = 0; i < n; i++) {
+            radix[i] = total;
+            total *= space.getNumValues(i);
+            if (total > MAX_BIDS || total < 0) {
+                throw new IllegalArgumentException(
+                        "domain is too large to index: more than " + MAX_BIDS
+                                + " bids");
+            }
+        }
+
+        long[] allCodes = new long[(int) total];
+        double[] allUtils = new double[(int) total];
+        int size = 0;
+        // walk all bids like an odometer. partial[i] is the utility of
+        // issues i..n-1, so only the digits that changed are re-added.
+        long[] ordinals = new long[n];
+        double[] partial = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            partial[i] = partial[i + 1] + space.getWeightedUtil(i, 0);
+        }
+        for (long code = 0; code < total; code++) {
+            if (partial[0] >= minUtil - EPSILON) {
+                allCodes[size] = code;
+                allUtils[size] = partial[0];
+                size++;
+            }
+            int i = 0;
+            while (i < n && ++ordinals[i] == space.getNumValues(i)) {
+                ordinals[i++] = 0;
+            }
+            for (int j = Math.min(i, n - 1); j >= 0; j--) {
+                partial[j] = partial[j + 1]
+                        + space.getWeightedUtil(j, ordinals[j]);
+            }
+        }
+        codes = new long[size];
+        utils = new double[size];
+        System.arraycopy(allCodes, 0, codes, 0, size);
+        System.arraycopy(allUtils, 0, utils, 0, size);
+        sort(utils, codes);
+    }
+
+    /**
+     * @param space the compiled profile
+     * @return true iff the domain of space is small enough to be indexed
+     */
+    public static boolean isIndexable(CompiledUtilSpace space) {
+        long total = 1;
+        for (int i = 0; i < space.getNumIssues(); i++) {
+            long size = space.getNumValues(i);
+            if (size != 0 && total > MAX_BIDS / size) {
+                return false;
+            }
+            total *= size;
+        }
+        return total <= MAX_BIDS;
+    }
+
+    /**
+     * @param min the lowest utility
+     * @param max the highest utility
+     * @return view on the bids with utility in [min, max], ascending utility.
+     * The view is not copied, the bids are decoded when they are
+     * retrieved.
+     */
+    public ImmutableList<Bid> getBids(double min, double max) {
+        int from = lowerBound(min - EPSILON);
+        int to = Math.max(from, lowerBound(Math.nextUp(max + EPSILON)));
+        return new Slice(from, to);
+    }
+
+    /**
+     * Like {@link #getBids(double, double)}, but the lower end of the band is
+     * moved so that the band holds between kMin and kMax bids where possible.
+     *
+     * @param min  the lowest utility, if the band has between kMin and kMax
+     *             bids
+     * @param max  the highest utility
+     * @param kMin the minimum number of bids. The band is extended down to
+     *             the kMin bids closest to max, or all bids up to max if
+     *             there are fewer.
+     * @param kMax the maximum number of bids, at least kMin. The band is cut
+     *             to the kMax bids closest to max.
+     * @return view on the bids, ascending utility.
+     */
+    public ImmutableList<Bid> getBids(double min, double max, int kMin,
+            int kMax) {
+        int to = lowerBound(Math.nextUp(max + EPSILON));
+        return new Slice(getFrom(min, to, kMin, kMax), to);
+    }
+
+    /**
+     * @return the lower end of the band of
+     * {@link #getBids(double, double, int, int)}: min if the band was not
+     * moved, else the lowest utility of the bids in it.
+     */
+    public double getLow(double min, double max, int kMin, int kMax) {
+        int to = lowerBound(Math.nextUp(max + EPSILON));
+        int from = getFrom(min, to, kMin, kMax);
+        if (from == to || from == Math.min(to, lowerBound(min - EPSILON))) {
+            return min;
+        }
+        return utils[from];
+    }
+
+    private int getFrom(double min, int to, int kMin, int kMax) {
+        if (kMin > kMax) {
+            throw new IllegalArgumentException("kMin must be at most kMax");
+        }
+        int from = Math.min(to, lowerBound(min - EPSILON));
+        from = Math.max(0, Math.min(from, to - kMin));
+        return Math.max(from, to - kMax);
+    }
+
+    /**
+     * @param target the target utility
+     * @return the bid with utility closest to target, or null if the index
+     * is empty.
+     */
+    public Bid getNearest(double target) {
+        int pos = getNearestPosition(target);
+        return pos < 0 ? null : getBid(pos);
+    }
+
+    /**
+     * @param target the target utility
+     * @return position of the bid with utility closest to target, or -1 if
+     * the index is empty.
+     */
+    public int getNearestPosition(double target) {
+        if (utils.length == 0) {
+            return -1;
+        }
+        int pos = lowerBound(target);
+        if (pos == utils.length) {
+            return pos - 1;
+        }
+        if (pos > 0 && target - utils[pos - 1] < utils[pos] - target) {
+            return pos - 1;
+        }
+        return pos;
+    }
+
+    /**
+     * @param util a utility
+     * @return the highest utility of a bid in the index that is at most
+     * util, or NaN if there is no such bid.
+     */
+    public double getUtilityBelow(double util) {
+        int pos = lowerBound(Math.nextUp(util + EPSILON)) - 1;
+        return pos < 0 ? Double.NaN : utils[pos];
+    }
+
+    /**
+     * @param util a utility
+     * @return the lowest utility of a bid in the index that is at least
+     * util, or NaN if there is no such bid.
+     */
+    public double getUtilityAbove(double util) {
+        int pos = lowerBound(util - EPSILON);
+        return pos == utils.length ? Double.NaN : utils[pos];
+    }
+
+    /**
+     * @param min the lowest utility
+     * @param max the highest utility
+     * @return true iff there is a bid with utility in [min, max]
+     */
+    public boolean hasBids(double min, double max) {
+        return lowerBound(min - EPSILON)
+                < lowerBound(Math.nextUp(max + EPSILON));
+    }
+
+    /**
+     * @return the number of bids in the index
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * @param pos position in the index, 0 is the worst bid
+     * @return our utility of the bid at pos
+     */
+    public double getUtility(int pos) {
+        return utils[pos];
+    }
+
+    /**
+     * @param pos position in the index, 0 is the worst bid
+     * @return the bid at pos
+     */
+    public Bid getBid(int pos) {
+        return decode(codes[pos]);
+    }
+
+    /**
+     * @param pos   position in the index
+     * @param issue the issue index of the {@link CompiledUtilSpace}
+     * @return the ordinal of the value of issue in the bid at pos
+     */
+    public long getOrdinal(int pos, int issue) {
+        return codes[pos] / radix[issue] % space.getNumValues(issue);
+    }
+
+    /**
+     * @param util a utility
+     * @return position of the first bid with utility &gt;= util, or
+     * {@link #size()} if there is no such bid.
+     */
+    public int lowerBound(double util) {
+        int lo = 0, hi = utils.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (utils[mid] < util) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private Bid decode(long code) {
+        Map<String, Value> values = new HashMap<>();
+        for (int i = radix.length - 1; i >= 0; i--) {
+            values.put(space.getIssue(i), space.getValue(i, code / radix[i]));
+            code %= radix[i];
+        }
+        return new Bid(values);
+    }
+
+    /**
+     * Sorts keys ascending and applies the same permutation to vals.
+     * Bottom-up merge sort, stable.
+     */
+    private static void sort(double[] keys, long[] vals) {
+        int n = keys.length;
+        double[] keyBuf = new double[n];
+        long[] valBuf = new long[n];
+        double[] srcKeys = keys, dstKeys = keyBuf;
+        long[] srcVals = vals, dstVals = valBuf;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int a = lo, b = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (a < mid && (b >= hi || srcKeys[a] <= srcKeys[b])) {
+                        dstKeys[k] = srcKeys[a];
+                        dstVals[k] = srcVals[a++];
+                    } else {
+                        dstKeys[k] = srcKeys[b];
+                        dstVals[k] = srcVals[b++];
+                    }
+                }
+            }
+            double[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+            long[] tv = srcVals;
+            srcVals = dstVals;
+            dstVals = tv;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcVals, 0, vals, 0, n);
+        }
+    }
+
+    /**
+     * View on a range of positions in the index.
+     */
+    private class Slice extends AbstractImmutableList<Bid> {
+        private final int from, to;
+
+        Slice(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Bid get(BigInteger index) {
+            return get(index.longValueExact());
+        }
+
+        @Override
+        public Bid get(long index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("index " + index
+                        + " out of range [0," + (to - from) + ")");
+            }
+            return getBid(from + (int) index);
+        }
+
+        @Override
+        public BigInteger size() {
+            return BigInteger.valueOf(to - from);
+        }
+    }
+
+}
@@ -0,0 +1,366 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValueSet;
+import geniusweb.issuevalue.Domain;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.profile.utilityspace.NumberValueSetUtilities;
+import geniusweb.profile.utilityspace.ValueSetUtilities;
+import tudelft.utilities.immutablelist.Range;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Linear additive utility function compiled into primitive tables, so that
+ * bids can be evaluated with double arithmetic and without allocating
+ * {@link BigDecimal}s.
+ * <p>
+ * Issues are indexed in alphabetical order, values by their position
+ * (ordinal) in the issue's {@link ValueSet}. For every discrete issue this
+ * holds a table with the weighted utility of each value. Numeric issues are
+ * evaluated with the linear form of their {@link NumberValueSetUtilities};
+ * they also get a table if the range is small enough. Other numeric issues
+ * get a table if the range is small enough, and are evaluated with their
+ * {@link ValueSetUtilities} otherwise.
+ * <p>
+ * immutable.
+ */
+public class CompiledUtilSpace {
+    /**
+     * numeric issues with more values than this are not tabulated. Discrete
+     * issues are always tabulated, their values are held in memory anyway.
+     */
+    static final int MAX_TABLE_SIZE = 1 << 16;
+
+    private final Domain domain;
+    private final String[] issues;
+    private final ValueSet[] valueSets;
+    private final long[] sizes;
+    /**
+     * value to ordinal, only for discrete issues.
+     */
+    private final List<Map<Value, Integer>> ordinals;
+    /**
+     * weighted utility per ordinal, or null if the issue is not tabulated.
+     */
+    private final double[][] tables;
+    /**
+     * numeric issues: weighted utility of x is offset + slope * x if lowX
+     * &lt;= x &lt;= highX, and 0 otherwise.
+     */
+    private final boolean[] linear;
+    private final double[] lowX, highX, offset, slope;
+    /**
+     * numeric issues: the value with ordinal i is rangeLow + i * rangeStep.
+     */
+    private final double[] rangeLow, rangeStep;
+    /**
+     * numeric issues that are neither linear nor small enough to tabulate.
+     */
+    private final ValueSetUtilities[] fallback;
+    private final BigDecimal[] fallbackWeight;
+    private final double[] minUtil, maxUtil;
+
+    /**
+     * @param space the {@link LinearAdditive} space to compile
+     */
+    public CompiledUtilSpace(LinearAdditive space) {
+        this(space.getDomain(), space.getUtilities(), space.getWeights());
+    }
+
+    /**
+     * @param domain  the {@link Domain}
+     * @param utils   the {@link ValueSetUtilities} for each issue
+     * @param weights the weight of each issue
+     */
+    public CompiledUtilSpace(Domain domain,
+                             Map<String, ValueSetUtilities> utils,
+                             Map<String, BigDecimal> weights) {
+        this.domain = domain;
+        List<String> sorted = new ArrayList<>(domain.getIssues());
+        Collections.sort(sorted);
+        int n = sorted.size();
+        issues = sorted.toArray(new String[n]);
+        valueSets = new ValueSet[n];
+        sizes = new long[n];
+        ordinals = new ArrayList<>(Collections.nCopies(n, null));
+        tables = new double[n][];
+        linear = new boolean[n];
+        lowX = new double[n];
+        highX = new double[n];
+        offset = new double[n];
+        slope = new double[n];
+        rangeLow = new double[n];
+        rangeStep = new double[n];
+        fallback = new ValueSetUtilities[n];
+        fallbackWeight = new BigDecimal[n];
+        minUtil = new double[n];
+        maxUtil = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            String issue = issues[i];
+            ValueSet values = domain.getValues(issue);
+            ValueSetUtilities util = utils.get(issue);
+            BigDecimal weight = weights.get(issue);
+            valueSets[i] = values;
+            sizes[i] = values.size().longValueExact();
+
+            if (values instanceof NumberValueSet) {
+                Range range = ((NumberValueSet) values).getRange();
+                rangeLow[i] = range.getLow().doubleValue();
+                rangeStep[i] = range.getStep().doubleValue();
+                if (util instanceof NumberValueSetUtilities) {
+                    compileLinear(i, (NumberValueSetUtilities) util, weight);
+                }
+            } else {
+                Map<Value, Integer> ords = new HashMap<>();
+                for (int o = 0; o < sizes[i]; o++) {
+                    ords.put(values.get(o), o);
+                }
+                ordinals.set(i, ords);
+            }
+
+            if (!linear[i] || sizes[i] <= MAX_TABLE_SIZE) {
+                if (ordinals.get(i) == null && sizes[i] > MAX_TABLE_SIZE) {
+                    fallback[i] = util;
+                    fallbackWeight[i] = weight;
+                } else {
+                    double[] table = new double[(int) sizes[i]];
+                    for (int o = 0; o < table.length; o++) {
+                        table[o] = weight.multiply(util.getUtility(values.get(o)))
+                                .doubleValue();
+                    }
+                    tables[i] = table;
+                }
+            }
+            computeExtremes(i);
+        }
+    }
+
+    private void compileLinear(int i, NumberValueSetUtilities util,
+                               BigDecimal weight) {
+        double w = weight.doubleValue();
+        double lo = util.getLowValue().doubleValue();
+        double hi = util.getHighValue().doubleValue();
+        double loU = util.getLowUtility().doubleValue();
+        double hiU = util.getHighUtility().doubleValue();
+        linear[i] = true;
+        lowX[i] = lo;
+        highX[i] = hi;
+        slope[i] = hi > lo ? w * (hiU - loU) / (hi - lo) : 0d;
+        offset[i] = w * loU - slope[i] * lo;
+    }
+
+    private void computeExtremes(int i) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        if (tables[i] != null) {
+            for (double u : tables[i]) {
+                min = Math.min(min, u);
+                max = Math.max(max, u);
+            }
+        } else if (fallback[i] != null) {
+            // nothing is known about the shape of the utility function
+            for (long o = 0; o < sizes[i]; o++) {
+                double u = getWeightedUtil(i, o);
+                min = Math.min(min, u);
+                max = Math.max(max, u);
+            }
+        } else {
+            // linear inside [lowX, highX] and 0 outside, so the extremes are
+            // at the ends of the range or at the ends of the linear part.
+            long last = sizes[i] - 1;
+            long first = (long) Math.ceil((lowX[i] - rangeLow[i]) / rangeStep[i]);
+            long end = (long) Math.floor((highX[i] - rangeLow[i]) / rangeStep[i]);
+            for (long o : new long[]{0, last, first, end}) {
+                if (o >= 0 && o <= last) {
+                    double u = getWeightedUtil(i, o);
+                    min = Math.min(min, u);
+                    max = Math.max(max, u);
+                }
+            }
+            if (first > 0 || end < last) {
+                min = Math.min(min, 0d);
+                max = Math.max(max, 0d);
+            }
+        }
+        minUtil[i] = sizes[i] == 0 ? 0d : min;
+        maxUtil[i] = sizes[i] == 0 ? 0d : max;
+    }
+
+    /**
+     * @param bid the bid to evaluate, may be partial
+     * @return the utility of bid. Issues that are missing in the bid, or
+     * that have a value that is not in the domain, contribute 0.
+     */
+    public double getUtility(Bid bid) {
+        double util = 0d;
+        for (int i = 0; i < issues.length; i++) {
+            util += getWeightedUtil(i, bid.getValue(issues[i]));
+        }
+        return util;
+    }
+
+    /**
+     * @param ordinals the ordinal of the value of each issue
+     * @return the utility of the bid
+     */
+    public double getUtility(long[] ordinals) {
+        double util = 0d;
+        for (int i = 0; i < issues.length; i++) {
+            util += getWeightedUtil(i, ordinals[i]);
+        }
+        return util;
+    }
+
+    /**
+     * @param issue the issue index
+     * @param value the value, or null
+     * @return the weighted utility of value for the issue, 0 if value is
+     * null or not in the domain.
+     */
+    public double getWeightedUtil(int issue, Value value) {
+        if (value == null) {
+            return 0d;
+        }
+        Map<Value, Integer> ords = ordinals.get(issue);
+        if (ords != null) {
+            Integer ord = ords.get(value);
+            return ord == null ? 0d : tables[issue][ord];
+        }
+        if (!(value instanceof NumberValue)) {
+            return 0d;
+        }
+        if (fallback[issue] != null) {
+            return fallbackWeight[issue]
+                    .multiply(fallback[issue].getUtility(value)).doubleValue();
+        }
+        if (!linear[issue]) {
+            long ord = getOrdinal(issue, value);
+            return ord < 0 ? 0d : tables[issue][(int) ord];
+        }
+        return linearUtil(issue, ((NumberValue) value).getValue().doubleValue());
+    }
+
+    /**
+     * @param issue   the issue index
+     * @param ordinal the ordinal of the value
+     * @return the weighted utility of the value
+     */
+    public double getWeightedUtil(int issue, long ordinal) {
+        if (tables[issue] != null) {
+            return tables[issue][(int) ordinal];
+        }
+        if (fallback[issue] != null) {
+            return getWeightedUtil(issue, getValue(issue, ordinal));
+        }
+        return linearUtil(issue, rangeLow[issue] + ordinal * rangeStep[issue]);
+    }
+
+    private double linearUtil(int issue, double x) {
+        if (x < lowX[issue] || x > highX[issue]) {
+            return 0d;
+        }
+        return offset[issue] + slope[issue] * x;
+    }
+
+    /**
+     * @param issue the issue index
+     * @param value the value
+     * @return ordinal of value in the issue's {@link ValueSet}, or -1 if
+     * value is not in the set.
+     */
+    public long getOrdinal(int issue, Value value) {
+        Map<Value, Integer> ords = ordinals.get(issue);
+        if (ords != null) {
+            Integer ord = ords.get(value);
+            return ord == null ? -1 : ord;
+        }
+        if (!(value instanceof NumberValue)) {
+            return -1;
+        }
+        Range range = ((NumberValueSet) valueSets[issue]).getRange();
+        BigDecimal[] div = ((NumberValue) value).getValue()
+                .subtract(range.getLow()).divideAndRemainder(range.getStep());
+        if (div[1].signum() != 0 || div[0].signum() < 0
+                || div[0].compareTo(BigDecimal.valueOf(sizes[issue])) >= 0) {
+            return -1;
+        }
+        return div[0].longValue();
+    }
+
+    /**
+     * @param issue   the issue index
+     * @param ordinal the ordinal of the value
+     * @return the value
+     */
+    public Value getValue(int issue, long ordinal) {
+        return valueSets[issue].get(BigInteger.valueOf(ordinal));
+    }
+
+    /**
+     * @param ordinals the ordinal of the value of each issue
+     * @return the bid with these values
+     */
+    public Bid getBid(long[] ordinals) {
+        Map<String, Value> values = new HashMap<>();
+        for (int i = 0; i < issues.length; i++) {
+            values.put(issues[i], getValue(i, ordinals[i]));
+        }
+        return new Bid(values);
+    }
+
+    /**
+     * @return the number of issues
+     */
+    public int getNumIssues() {
+        return issues.length;
+    }
+
+    /**
+     * @param issue the issue index
+     * @return the name of the issue
+     */
+    public String getIssue(int issue) {
+        return issues[issue];
+    }
+
+    /**
+     * @param issue the issue index
+     * @return the number of values of the issue
+     */
+    public long getNumValues(int issue) {
+        return sizes[issue];
+    }
+
+    /**
+     * @param issue the issue index
+     * @return the lowest weighted utility of any value of the issue
+     */
+    public double getMinUtil(int issue) {
+        return minUtil[issue];
+    }
+
+    /**
+     * @param issue the issue index
+     * @return the highest weighted utility of any value of the issue
+     */
+    public double getMaxUtil(int issue) {
+        return maxUtil[issue];
+    }
+
+    public Domain getDomain() {
+        return domain;
+    }
+
+}
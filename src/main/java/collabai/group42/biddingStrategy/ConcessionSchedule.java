@@ -0,0 +1,157 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.progress.Progress;
+import geniusweb.progress.ProgressRounds;
+import tudelft.utilities.immutablelist.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Table of the target utility and the candidate bids over the progress of a
+ * session, so it is known ahead of time how the bidding goes and the bids of
+ * a target are looked up only once.
+ * <p>
+ * The grid has a point per round of a {@link ProgressRounds} session, and
+ * {@link #TIME_STEPS} points otherwise. A progress is mapped to its round,
+ * or for time to the grid point at or before it. The targets are computed
+ * for the whole session up front; the candidate bids of a grid point are
+ * resolved the first time they are asked for and then kept, and shared with
+ * the previous grid point if it has the same target. The resolver may
+ * return null for candidates that should not be kept, for example because
+ * they are drawn at random.
+ * <p>
+ * The target function may depend on state that changes during the session.
+ * {@link #rebuild(double)} recomputes the tail of the table from the current
+ * progress on, keeping the candidates of the targets that did not change.
+ * <p>
+ * Not thread safe.
+ */
+public class ConcessionSchedule {
+    /**
+     * number of grid steps for sessions that are not in rounds.
+     */
+    public static final int TIME_STEPS = 1000;
+    /**
+     * sessions with more rounds than this use the time grid.
+     */
+    public static final int MAX_ROUNDS = 100000;
+
+    private final int steps;
+    private final boolean rounds;
+    private final DoubleUnaryOperator target;
+    private final DoubleFunction<ImmutableList<Bid>> resolver;
+    private final double[] targets;
+    /**
+     * the candidates of every grid point, null if not resolved.
+     */
+    private final List<ImmutableList<Bid>> candidates;
+
+    /**
+     * @param progress the progress of the session
+     * @param target   the target utility at a progress
+     * @param resolver the candidate bids at a target utility, or null if
+     *                 they should not be kept
+     */
+    public ConcessionSchedule(Progress progress, DoubleUnaryOperator target,
+            DoubleFunction<ImmutableList<Bid>> resolver) {
+        Integer total = progress instanceof ProgressRounds
+                ? ((ProgressRounds) progress).getTotalRounds() : null;
+        this.rounds = total != null && total > 0 && total <= MAX_ROUNDS;
+        this.steps = rounds ? total : TIME_STEPS;
+        this.target = target;
+        this.resolver = resolver;
+        targets = new double[steps + 1];
+        candidates = new ArrayList<>(Collections.nCopies(steps + 1, null));
+        for (int k = 0; k <= steps; k++) {
+            targets[k] = target.applyAsDouble(getProgress(k));
+        }
+    }
+
+    /**
+     * @param progress the progress, in [0, 1]
+     * @return the index of the grid point of progress
+     */
+    public int getIndex(double progress) {
+        double x = progress * steps;
+        // a round is exact up to rounding, time is rounded down
+        int k = (int) (rounds ? Math.round(x) : Math.floor(x + 1e-9));
+        return Math.max(0, Math.min(steps, k));
+    }
+
+    /**
+     * @param index the index of a grid point
+     * @return the progress of the grid point
+     */
+    public double getProgress(int index) {
+        return (double) index / steps;
+    }
+
+    /**
+     * @param progress the progress
+     * @return the target utility at the grid point of progress
+     */
+    public double getTarget(double progress) {
+        return targets[getIndex(progress)];
+    }
+
+    /**
+     * @param progress the progress
+     * @return the candidate bids at the target utility of the grid point of
+     * progress, or null if the resolver does not keep them.
+     */
+    public ImmutableList<Bid> getBids(double progress) {
+        int k = getIndex(progress);
+        ImmutableList<Bid> bids = candidates.get(k);
+        if (bids == null) {
+            if (k > 0 && targets[k - 1] == targets[k]
+                    && candidates.get(k - 1) != null) {
+                bids = candidates.get(k - 1);
+            } else {
+                bids = resolver.apply(targets[k]);
+            }
+            candidates.set(k, bids);
+        }
+        return bids;
+    }
+
+    /**
+     * Recomputes the targets from the grid point of progress to the end.
+     * Grid points whose target changed lose their candidates.
+     *
+     * @param progress the current progress
+     * @return the number of targets that changed
+     */
+    public int rebuild(double progress) {
+        int changed = 0;
+        for (int k = getIndex(progress); k <= steps; k++) {
+            double util = target.applyAsDouble(getProgress(k));
+            if (Double.compare(util, targets[k]) != 0) {
+                targets[k] = util;
+                candidates.set(k, null);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the target utility of every grid point, in order of progress
+     */
+    public double[] getTargets() {
+        return Arrays.copyOf(targets, targets.length);
+    }
+
+    /**
+     * @return the number of grid steps, the number of rounds for sessions in
+     * rounds.
+     */
+    public int getSteps() {
+        return steps;
+    }
+}
@@ -10,8 +10,12 @@ import tudelft.utilities.immutablelist.ImmutableList;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * Inner class for TimeDependentParty, made public for testing purposes. This
@@ -23,15 +27,30 @@ public class ExtendedUtilSpace {
 	private LinearAdditive utilspace;
 	private BigDecimal tolerance; // utility tolerance for a bid.
 	private BidsWithUtility bidutils;
+	private final CompiledUtilSpace compiled;
+	private final BidEnumerator enumerator;
+	private BidIndex index = null; // null if domain too large
+	private BandSampler sampler = null; // only if there is no index
+	private BestFirstBids bestFirst = null; // created when first needed
 	// min and max achievable utility
 	private BigDecimal minUtil;
 	private BigDecimal maxUtil;
+	// bounds on the number of bids in a band, see setCandidateBounds
+	private int minCandidates = 0;
+	private int maxCandidates = Integer.MAX_VALUE;
 
 	public ExtendedUtilSpace(LinearAdditive space) {
 		this.utilspace = space;
 		bidutils = new BidsWithUtility(utilspace);
+		compiled = new CompiledUtilSpace(utilspace);
+		enumerator = new BidEnumerator(compiled);
 		computeMinMax();
 		this.tolerance = computeTolerance();
+		if (BidIndex.isIndexable(compiled)) {
+			index = new BidIndex(compiled, minUtil.doubleValue());
+		} else if (BandSampler.isSupported(compiled)) {
+			sampler = new BandSampler(compiled);
+		}
 	}
 
 	/**
@@ -82,6 +101,55 @@ public class ExtendedUtilSpace {
 		return tolerance;
 	}
 
+	/**
+	 * Switches between the fixed tolerance and an adaptive one. With bounds,
+	 * the lower end of the band of every query is moved so that the band
+	 * holds between kMin and kMax bids: down if it holds fewer, up if it
+	 * holds more, keeping the bids closest to the utility goal. The number of
+	 * bids is counted exactly in the {@link BidIndex} if the domain is
+	 * indexed, and estimated from the histogram of the {@link BandSampler}
+	 * otherwise. Domains with neither keep the fixed tolerance.
+	 *
+	 * @param kMin the minimum number of bids in a band, at least 0
+	 * @param kMax the maximum number of bids in a band, at least kMin.
+	 *             kMin 0 and kMax {@link Integer#MAX_VALUE} give the fixed
+	 *             tolerance, the default.
+	 */
+	public void setCandidateBounds(int kMin, int kMax) {
+		if (kMin < 0 || kMin > kMax) {
+			throw new IllegalArgumentException(
+					"need 0 <= kMin <= kMax but got " + kMin + ", " + kMax);
+		}
+		this.minCandidates = kMin;
+		this.maxCandidates = kMax;
+	}
+
+	/**
+	 * @param utilityGoal the intended utility
+	 * @return the lower end of the band for utilityGoal: utilityGoal minus
+	 *         the tolerance, moved as set by
+	 *         {@link #setCandidateBounds(int, int)}.
+	 */
+	public double getLow(double utilityGoal) {
+		double low = utilityGoal - tolerance.doubleValue();
+		if (!isAdaptive()) {
+			return low;
+		}
+		if (index != null) {
+			return index.getLow(low, utilityGoal, minCandidates,
+					maxCandidates);
+		}
+		if (sampler != null) {
+			return sampler.getLow(low, utilityGoal, minCandidates,
+					maxCandidates);
+		}
+		return low;
+	}
+
+	private boolean isAdaptive() {
+		return minCandidates > 0 || maxCandidates < Integer.MAX_VALUE;
+	}
+
 	public BigDecimal getMin() {
 		return minUtil;
 	}
@@ -92,13 +160,190 @@ public class ExtendedUtilSpace {
 
 	/**
 	 * @param utilityGoal the intended utilty
-	 * @return bids with utility inside [utilitygoal-tolerance, utilitygoal]
+	 * @return bids with utility inside [utilitygoal-tolerance, utilitygoal],
+	 *         with the band moved as in {@link #getLow(double)}. If the
+	 *         domain is indexed, bids below the reservation value are not
+	 *         included.
 	 */
 	public ImmutableList<Bid> getBids(BigDecimal utilityGoal) {
+		double goal = utilityGoal.doubleValue();
+		if (index != null) {
+			return index.getBids(goal - tolerance.doubleValue(), goal,
+					minCandidates, maxCandidates);
+		}
+		if (isAdaptive()) {
+			return bidutils.getBids(new Interval(
+					BigDecimal.valueOf(getLow(goal)), utilityGoal));
+		}
 		return bidutils.getBids(
 				new Interval(utilityGoal.subtract(tolerance), utilityGoal));
 	}
 
+	/**
+	 * Streaming alternative to {@link #getBids(BigDecimal)} that does not
+	 * materialize the bids, for domains that are too large to index.
+	 *
+	 * @param utilityGoal the intended utilty
+	 * @return iterator over the bids with utility inside
+	 *         [utilitygoal-tolerance, utilitygoal], each bid once.
+	 */
+	public Iterator<Bid> iterateBids(BigDecimal utilityGoal) {
+		double goal = utilityGoal.doubleValue();
+		return enumerator.iterator(getLow(goal), goal);
+	}
+
+	/**
+	 * @param utilityGoal the intended utilty
+	 * @param k           the maximum number of bids
+	 * @param random      source of randomness. If null, the first k bids
+	 *                    of {@link #iterateBids(BigDecimal)} are returned.
+	 *                    Otherwise every bid is found by a new search from a
+	 *                    random starting point, so the result can contain
+	 *                    duplicates.
+	 * @return at most k bids with utility inside [utilitygoal-tolerance,
+	 *         utilitygoal]. Only fewer than k if there are no more bids.
+	 */
+	public List<Bid> getBids(BigDecimal utilityGoal, int k, Random random) {
+		double goal = utilityGoal.doubleValue();
+		return enumerator.getBids(getLow(goal), goal, k, random);
+	}
+
+	/**
+	 * @param min    the lowest utility
+	 * @param max    the highest utility
+	 * @param k      the maximum number of bids
+	 * @param random source of randomness, as in
+	 *               {@link #getBids(BigDecimal, int, Random)}
+	 * @return at most k bids with utility inside [min, max], searched by the
+	 *         {@link BidEnumerator}. Only fewer than k if there are no more
+	 *         bids.
+	 */
+	public List<Bid> getBids(double min, double max, int k, Random random) {
+		return enumerator.getBids(min, max, k, random);
+	}
+
+	/**
+	 * Uniform random sample of the bids in the tolerance band, without
+	 * listing the band.
+	 *
+	 * @param utilityGoal the intended utilty
+	 * @param k           the number of bids
+	 * @param random      source of randomness
+	 * @return k bids drawn with replacement from the bids with utility inside
+	 *         [utilitygoal-tolerance, utilitygoal]. Empty if there are no
+	 *         such bids.
+	 */
+	public List<Bid> sampleBids(BigDecimal utilityGoal, int k, Random random) {
+		double goal = utilityGoal.doubleValue();
+		if (sampler != null) {
+			return sampler.sample(getLow(goal), goal, k, random);
+		}
+		List<Bid> bids = new ArrayList<>();
+		if (index != null) {
+			ImmutableList<Bid> band = getBids(utilityGoal);
+			long size = band.size().longValue();
+			for (int n = 0; n < k && size > 0; n++) {
+				bids.add(band.get((long) (random.nextDouble() * size)));
+			}
+			return bids;
+		}
+		// not uniform, but the best we can do for huge issues
+		return getBids(utilityGoal, k, random);
+	}
+
+	/**
+	 * Lazy iterator over the best bids, for when only the top of the domain
+	 * is needed. The n best bids cost O(n log n), independent of the size of
+	 * the domain, see {@link BestFirstBids}.
+	 *
+	 * @return iterator over all bids in descending utility, or null if an
+	 *         issue has too many values.
+	 */
+	public Iterator<Bid> iterateBestBids() {
+		if (bestFirst == null) {
+			if (!BestFirstBids.isSupported(compiled)) {
+				return null;
+			}
+			bestFirst = new BestFirstBids(compiled);
+		}
+		return bestFirst.iterator();
+	}
+
+	/**
+	 * @param utilityGoal the intended utility
+	 * @return the bid with utility closest to utilityGoal, or null if the
+	 *         domain is not indexed.
+	 */
+	public Bid getNearestBid(double utilityGoal) {
+		if (index == null) {
+			return null;
+		}
+		return index.getNearest(utilityGoal);
+	}
+
+	/**
+	 * @param util a utility
+	 * @return the highest utility of a bid that is at most util, or NaN if
+	 *         there is no such bid. Exact if the domain is indexed, an
+	 *         estimate from the histogram of the {@link BandSampler}
+	 *         otherwise. NaN if the domain has neither.
+	 */
+	public double getUtilityBelow(double util) {
+		if (index != null) {
+			return index.getUtilityBelow(util);
+		}
+		return sampler == null ? Double.NaN : sampler.getUtilityBelow(util);
+	}
+
+	/**
+	 * @param util a utility
+	 * @return the lowest utility of a bid that is at least util, or NaN if
+	 *         there is no such bid. Exact or estimated like
+	 *         {@link #getUtilityBelow(double)}.
+	 */
+	public double getUtilityAbove(double util) {
+		if (index != null) {
+			return index.getUtilityAbove(util);
+		}
+		return sampler == null ? Double.NaN : sampler.getUtilityAbove(util);
+	}
+
+	/**
+	 * @param min the lowest utility
+	 * @param max the highest utility
+	 * @return true iff there is a bid with utility in [min, max]. Exact if
+	 *         the domain is indexed, estimated by the {@link BandSampler}
+	 *         if there is one, and otherwise by searching for a first bid.
+	 */
+	public boolean hasBids(double min, double max) {
+		if (index != null) {
+			return index.hasBids(min, max);
+		}
+		if (sampler != null) {
+			return sampler.count(min, max) > 0;
+		}
+		return enumerator.iterator(min, max).hasNext();
+	}
+
+	/**
+	 * @return the {@link BidIndex} of all bids above the reservation value,
+	 *         or null if the domain is too large to index.
+	 */
+	public BidIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return a new, empty {@link ParetoFrontier} over the indexed bids, or
+	 *         null if the domain is too large to index.
+	 */
+	public ParetoFrontier createParetoFrontier() {
+		if (index == null) {
+			return null;
+		}
+		return new ParetoFrontier(index, compiled);
+	}
+
 	/**
 	 * Get utility value of a certain bid.
 	 *
@@ -106,7 +351,14 @@ public class ExtendedUtilSpace {
 	 * @return utility value of the bid.
 	 */
 	public double getUtility(Bid bid) {
-		return utilspace.getUtility(bid).doubleValue();
+		return compiled.getUtility(bid);
+	}
+
+	/**
+	 * @return the {@link CompiledUtilSpace} of our profile
+	 */
+	public CompiledUtilSpace getCompiledSpace() {
+		return compiled;
 	}
 
 	/**
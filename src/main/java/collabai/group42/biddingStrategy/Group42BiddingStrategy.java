@@ -1,6 +1,7 @@
 package collabai.group42.biddingStrategy;
 
 import collabai.group42.opponent.Group42OpponentModel;
+import collabai.group42.opponent.OpponentScore;
 import geniusweb.actions.AbstractAction;
 import geniusweb.actions.Accept;
 import geniusweb.actions.Action;
@@ -12,13 +13,16 @@ import geniusweb.issuevalue.Bid;
 import geniusweb.opponentmodel.OpponentModel;
 import geniusweb.profile.Profile;
 import geniusweb.profile.utilityspace.LinearAdditive;
-import org.apache.commons.math3.stat.regression.SimpleRegression;
+import geniusweb.references.Parameters;
+import tudelft.utilities.immutablelist.AbstractImmutableList;
+import tudelft.utilities.immutablelist.FixedList;
 import tudelft.utilities.immutablelist.ImmutableList;
 
 import java.lang.Math;
 import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
@@ -26,12 +30,101 @@ import java.util.logging.Level;
 
 
 public class Group42BiddingStrategy implements BiddingStrategy {
+    /**
+     * number of candidate bids that are scored with the opponent model.
+     */
+    protected static final int MAX_CANDIDATES = 20;
+    /**
+     * name of the parameter that selects the {@link NiceBidMode}.
+     */
+    public static final String NICE_BID_MODE = "niceBidMode";
+    /**
+     * name of the parameter with the number of recent opponent bids that the
+     * niceness is computed from.
+     */
+    public static final String NICENESS_WINDOW = "nicenessWindow";
+    /**
+     * name of the parameter with the weight of a recent bid relative to the
+     * bid after it, in (0, 1]. 1 weighs all bids in the window the same.
+     */
+    public static final String NICENESS_DECAY = "nicenessDecay";
+    private static final int DEFAULT_NICENESS_WINDOW = 10;
+    /**
+     * names of the parameters with the minimum and maximum number of bids in
+     * the band at the target utility. If either is set, the band width adapts
+     * per turn, see {@link ExtendedUtilSpace#setCandidateBounds(int, int)}.
+     */
+    public static final String CANDIDATES_MIN = "candidatesMin";
+    public static final String CANDIDATES_MAX = "candidatesMax";
+    /**
+     * how far below the target utility {@link #getAlterAction} may go.
+     */
+    private static final double MAX_FALLBACK_DROP = 0.1;
+    /**
+     * number of bands below the target that {@link #getAlterAction} searches
+     * if there is no estimate of the utility distribution.
+     */
+    private static final int FALLBACK_STEPS = 10;
+    /**
+     * progress until which the target utility stays close to the maximum.
+     */
+    private static final double OPENING_PROGRESS = 0.1;
+    /**
+     * progress from which the target utility is the reservation value.
+     */
+    private static final double FINAL_PROGRESS = 0.99;
+    /**
+     * maximum number of bids in the opening ladder.
+     */
+    private static final int MAX_LADDER = 1000;
+    /**
+     * slack when comparing utilities, to make up for rounding.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * How the bid that is nicest for the opponent is picked.
+     */
+    public enum NiceBidMode {
+        /**
+         * score {@link #MAX_CANDIDATES} random bids at the target utility.
+         */
+        SAMPLE,
+        /**
+         * search the bid with the highest opponent utility of all bids with
+         * at least the target utility, see {@link OpponentBidOptimizer}.
+         */
+        OPTIMAL
+    }
 
     protected ExtendedUtilSpace bidSpace = null;
     protected PartyId me;
     private double min, max;
     private double a = 5.0, b = 0.1;
-    protected LinkedList<List<Double>> recentBids = new LinkedList<>();
+    protected NiceBidMode niceBidMode = NiceBidMode.SAMPLE;
+    private ParetoFrontier frontier = null;
+    /**
+     * the last result of {@link #getOpponentTable(BoaState)} and the
+     * {@link OpponentScore} it was read from. A model compiles one score per
+     * version, so the table is only read again when the model changed.
+     */
+    private double[][] opponentTable = null;
+    private OpponentScore opponentTableScore = null;
+    /**
+     * the best bids in descending utility, with their utilities. Holds all
+     * bids with at least ladderFloor utility. null if not available.
+     */
+    private List<Bid> ladder = null;
+    private double[] ladderUtils;
+    private double ladderFloor;
+    /**
+     * the targets and candidates over the session, null until init. The tail
+     * from {@link #scheduleProgress} on is rebuilt when a or b changes.
+     */
+    private ConcessionSchedule schedule = null;
+    private double scheduleProgress = 0;
+    protected RegressionWindow recentBids = new RegressionWindow(
+            DEFAULT_NICENESS_WINDOW, 1d);
 
     @Override
     public Action getAction(BoaState boaState) {
@@ -43,16 +136,18 @@ public class Group42BiddingStrategy implements BiddingStrategy {
 
         double targetUtility = getTargetUtility(progress);
 
-        Bid lastBid = getLastBid(boaState.getActionHistory());
-        if (!(lastBid == null) && recentBids.size() < 10)
-            recentBids.add(Arrays.asList(progress, getUtility(lastBid)));
-        else if (recentBids.size() == 10) {
-            recentBids.remove();
-            recentBids.add(Arrays.asList(progress, getUtility(lastBid)));
+        Bid lastBid = getLastBid(boaState);
+        if (lastBid != null)
+            recentBids.add(progress, boaState.getUtility(lastBid));
+
+        if (niceBidMode == NiceBidMode.OPTIMAL) {
+            Bid optimal = getOptimalBid(targetUtility, boaState);
+            if (optimal != null) {
+                return new Offer(me, optimal);
+            }
         }
 
-        ImmutableList<Bid> bidOptions = bidSpace
-                .getBids((BigDecimal.valueOf(targetUtility)));
+        ImmutableList<Bid> bidOptions = getBidOptions(progress, targetUtility);
 
         if (bidOptions.size().intValue() == 0) {
             // should not happen, emergency exit
@@ -80,19 +175,20 @@ public class Group42BiddingStrategy implements BiddingStrategy {
         boaState.getReporter().log(Level.WARNING,
                 "No viable bids found at target utility: " + targetUtility);
 
-        // try target utility plus a randomized value in [-0.05, 0.05]
-        for (int i = 0; i < 10 && bidOptions.size().intValue() == 0; i++) {
-            BigDecimal tUtility = BigDecimal.valueOf(targetUtility
-                    + (ThreadLocalRandom.current().nextDouble() - 1) / 10);//.setScale(2, RoundingMode.HALF_UP);
-            bidOptions = bidSpace.getBids(tUtility);
-//            System.out.println(tUtility.doubleValue());
-//            System.out.println(bidOptions.size().intValue());
+        // the closest achievable utility below the target, if it is within
+        // the range that used to be tried at random
+        double below = bidSpace.getUtilityBelow(targetUtility);
+        if (Double.isNaN(below)) {
+            bidOptions = searchBelow(targetUtility);
+        } else if (below >= targetUtility - MAX_FALLBACK_DROP) {
+            bidOptions = getBidOptions(BigDecimal.valueOf(below));
         }
         if (bidOptions.size().intValue() == 0) {
             boaState.getReporter().log(Level.WARNING,
-                    "No viable bids found after 10 attempts.");
+                    "No viable bids found within " + MAX_FALLBACK_DROP
+                            + " below the target utility.");
 
-            // no success after 10 more attempts then either accept or walk away
+            // no bids close to the target, either accept or walk away
             if (lastBid != null)
                 return new Accept(me, lastBid);
             return new EndNegotiation(me);
@@ -100,6 +196,184 @@ public class Group42BiddingStrategy implements BiddingStrategy {
         return new Offer(me, getNiceBid(bidOptions, boaState));
     }
 
+    /**
+     * Searches the range below the target in {@link #FALLBACK_STEPS} bands,
+     * from the top down, for domains that are neither indexed nor sampled.
+     *
+     * @param targetUtility the target utility
+     * @return at most {@link #MAX_CANDIDATES} bids of the highest band with
+     * bids, empty if there are no bids within {@link #MAX_FALLBACK_DROP}
+     * below the target.
+     */
+    private ImmutableList<Bid> searchBelow(double targetUtility) {
+        double step = MAX_FALLBACK_DROP / FALLBACK_STEPS;
+        for (int k = 0; k < FALLBACK_STEPS; k++) {
+            double high = targetUtility - k * step;
+            List<Bid> bids = bidSpace.getBids(high - step, high,
+                    MAX_CANDIDATES, ThreadLocalRandom.current());
+            if (!bids.isEmpty()) {
+                return new FixedList<>(bids);
+            }
+        }
+        return new FixedList<>();
+    }
+
+    /**
+     * @param targetUtility the target utility
+     * @return candidate bids at the target utility. Bands within the opening
+     * ladder are taken from it. Otherwise, for domains that are too large to
+     * index, {@link #MAX_CANDIDATES} bids are drawn uniformly from the
+     * tolerance band instead of listing it.
+     */
+    protected ImmutableList<Bid> getBidOptions(BigDecimal targetUtility) {
+        ImmutableList<Bid> opening = getLadderBids(targetUtility.doubleValue());
+        if (opening != null) {
+            return opening;
+        }
+        if (bidSpace.getIndex() != null) {
+            return bidSpace.getBids(targetUtility);
+        }
+        return new FixedList<>(bidSpace.sampleBids(targetUtility,
+                MAX_CANDIDATES, ThreadLocalRandom.current()));
+    }
+
+    /**
+     * @param progress      the current progress
+     * @param targetUtility the target utility
+     * @return candidate bids at the target utility, from the
+     * {@link ConcessionSchedule} if they were resolved for the target.
+     */
+    protected ImmutableList<Bid> getBidOptions(double progress,
+            double targetUtility) {
+        if (schedule != null && schedule.getTarget(progress) == targetUtility) {
+            ImmutableList<Bid> bids = schedule.getBids(progress);
+            if (bids != null) {
+                return bids;
+            }
+        }
+        return getBidOptions(BigDecimal.valueOf(targetUtility));
+    }
+
+    /**
+     * @param targetUtility the target utility
+     * @return the candidate bids at the target utility if they are the same
+     * on every call, from the ladder or the index. null if they would be
+     * drawn at random.
+     */
+    private ImmutableList<Bid> getFixedBidOptions(double targetUtility) {
+        ImmutableList<Bid> bids = getLadderBids(targetUtility);
+        if (bids == null && bidSpace.getIndex() != null) {
+            bids = bidSpace.getBids(BigDecimal.valueOf(targetUtility));
+        }
+        return bids;
+    }
+
+    /**
+     * @param targetUtility the target utility
+     * @return the bids of the opening ladder in the band at the target
+     * utility, or null if the ladder does not cover the band.
+     */
+    protected ImmutableList<Bid> getLadderBids(double targetUtility) {
+        if (ladder == null) {
+            return null;
+        }
+        double low = bidSpace.getLow(targetUtility);
+        if (low < ladderFloor) {
+            return null;
+        }
+        int from = firstBelow(Math.nextUp(targetUtility + EPSILON));
+        int to = Math.max(from, firstBelow(low - EPSILON));
+        return new LadderSlice(from, to);
+    }
+
+    /**
+     * @param util a utility
+     * @return the position of the first bid in the ladder with a utility
+     * below util, or the size of the ladder if there is none.
+     */
+    private int firstBelow(double util) {
+        // the ladder is descending
+        int lo = 0, hi = ladderUtils.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ladderUtils[mid] >= util) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * View on a range of positions in the ladder.
+     */
+    private class LadderSlice extends AbstractImmutableList<Bid> {
+        private final int from, to;
+
+        LadderSlice(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Bid get(BigInteger index) {
+            return get(index.longValueExact());
+        }
+
+        @Override
+        public Bid get(long index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("index " + index
+                        + " out of range [0," + (to - from) + ")");
+            }
+            return ladder.get(from + (int) index);
+        }
+
+        @Override
+        public BigInteger size() {
+            return BigInteger.valueOf(to - from);
+        }
+    }
+
+    /**
+     * Lists the best bids once, down to the lowest band of the opening, so
+     * the opening does not need a band query per turn.
+     */
+    private void createLadder() {
+        ladder = null;
+        Iterator<Bid> best = bidSpace.iterateBestBids();
+        if (best == null) {
+            return;
+        }
+        double floor = Math.max(min, bidSpace.getLow(
+                getTargetUtility(Math.nextDown(OPENING_PROGRESS))));
+        List<Bid> bids = new ArrayList<>();
+        List<Double> utils = new ArrayList<>();
+        // all bids if the iterator runs out
+        ladderFloor = Double.NEGATIVE_INFINITY;
+        while (best.hasNext()) {
+            Bid bid = best.next();
+            double util = bidSpace.getUtility(bid);
+            if (util < floor - EPSILON) {
+                ladderFloor = floor;
+                break;
+            }
+            if (bids.size() == MAX_LADDER) {
+                // complete only above the utility of the last bid
+                ladderFloor = Math.nextUp(utils.get(utils.size() - 1));
+                break;
+            }
+            bids.add(bid);
+            utils.add(util);
+        }
+        ladder = bids;
+        ladderUtils = new double[utils.size()];
+        for (int n = 0; n < ladderUtils.length; n++) {
+            ladderUtils[n] = utils.get(n);
+        }
+    }
+
     /**
      * Find the nicest bid wrt the opponent within 10 attempts.
      *
@@ -109,7 +383,7 @@ public class Group42BiddingStrategy implements BiddingStrategy {
     protected Bid getNiceBid(ImmutableList<Bid> bidOptions, BoaState boaState) {
         long maxIndex = 0;
         double maxUtility = 0.0;
-        for (int i = 0; i < bidOptions.size().intValue() && i < 20; i++) {
+        for (int i = 0; i < bidOptions.size().intValue() && i < MAX_CANDIDATES; i++) {
             long index = ThreadLocalRandom.current()
                     .nextInt(bidOptions.size().intValue());
             double utility = getOpponentUtility(bidOptions.get(index), boaState);
@@ -123,6 +397,105 @@ public class Group42BiddingStrategy implements BiddingStrategy {
         return bidOptions.get(maxIndex);
     }
 
+    /**
+     * Find the bid with the highest estimated opponent utility among all bids
+     * with at least the target utility.
+     *
+     * @param targetUtility our minimum utility
+     * @param boaState      {@link BoaState}
+     * @return the optimal bid, or null if there is no opponent model, the
+     * domain is too large or no bid reaches the target utility.
+     */
+    protected Bid getOptimalBid(double targetUtility, BoaState boaState) {
+        if (getOpponentModel(boaState) == null) {
+            return null;
+        }
+        CompiledUtilSpace space = bidSpace.getCompiledSpace();
+        if (bidSpace.getIndex() == null
+                && !OpponentBidOptimizer.isSupported(space)) {
+            return null;
+        }
+        double[][] opponent = getOpponentTable(boaState);
+        ParetoFrontier frontier = getParetoFrontier(opponent);
+        if (frontier != null) {
+            int nicest = frontier.getNicest(targetUtility);
+            return nicest < 0 ? null : frontier.getBid(nicest);
+        }
+        return new OpponentBidOptimizer(space, opponent)
+                .getBestBid(targetUtility);
+    }
+
+    /**
+     * @param opponent the current opponent table, see
+     *                 {@link #getOpponentTable(BoaState)}
+     * @return the {@link ParetoFrontier} of our bids against opponent, or
+     * null if the domain is too large to index.
+     */
+    protected ParetoFrontier getParetoFrontier(double[][] opponent) {
+        if (frontier == null) {
+            frontier = bidSpace.createParetoFrontier();
+            if (frontier == null) {
+                return null;
+            }
+        }
+        frontier.update(opponent);
+        return frontier;
+    }
+
+    /**
+     * The table is read from the {@link OpponentScore} of the model, and
+     * the same table is returned for as long as the model returns the same
+     * score. Only a model without a score is asked for the bid with each
+     * single value.
+     *
+     * @param boaState {@link BoaState}
+     * @return the opponent utility of every issue value, that is of the bid
+     * with only that value, per issue and ordinal of our
+     * {@link CompiledUtilSpace}. Not to be changed. null if an issue has
+     * more than {@link Integer#MAX_VALUE} values.
+     */
+    protected double[][] getOpponentTable(BoaState boaState) {
+        CompiledUtilSpace space = bidSpace.getCompiledSpace();
+        for (int i = 0; i < space.getNumIssues(); i++) {
+            if (space.getNumValues(i) > Integer.MAX_VALUE) {
+                return null;
+            }
+        }
+        Group42OpponentModel om = getOpponentModel(boaState);
+        OpponentScore score = om == null ? null : om.getScore();
+        if (score == null) {
+            return tabulate(space, boaState);
+        }
+        if (score != opponentTableScore) {
+            double[][] table = new double[space.getNumIssues()][];
+            for (int i = 0; i < table.length; i++) {
+                int issue = score.getIssueIndex(space.getIssue(i));
+                table[i] = issue < 0 ? new double[(int) space.getNumValues(i)]
+                        : score.getWeightedUtils(issue, space.getDomain()
+                                .getValues(space.getIssue(i)));
+            }
+            opponentTable = table;
+            opponentTableScore = score;
+        }
+        return opponentTable;
+    }
+
+    /**
+     * @return the opponent utility of the bid with only one value, for every
+     * value of space.
+     */
+    private double[][] tabulate(CompiledUtilSpace space, BoaState boaState) {
+        double[][] table = new double[space.getNumIssues()][];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = new double[(int) space.getNumValues(i)];
+            for (int o = 0; o < table[i].length; o++) {
+                table[i][o] = getOpponentUtility(new Bid(space.getIssue(i),
+                        space.getValue(i, o)), boaState);
+            }
+        }
+        return table;
+    }
+
     /**
      * Calculate the utility of certain bid wrt the party itself.
      *
@@ -142,28 +515,49 @@ public class Group42BiddingStrategy implements BiddingStrategy {
      * <p>
      * Once the target utility is decided, the opponent model is used to pick nicer bid wrt the opponent.
      *
+     * The targets are read from the {@link ConcessionSchedule}, whose tail
+     * is rebuilt by {@link #setA()} and {@link #setB()} when a or b changes.
+     *
      * @param progress Current progress wrt the total rounds
      * @return The intended utility for the next bid
      */
     protected double getTargetUtility(Double progress) {
-        if (progress < 0.1) {
-            return (1 - progress * 0.1) * (this.max - this.min) + this.min;
-        }
+        scheduleProgress = progress;
         //in the middle part of the negotiation, the toughness of the opponent affect the inflection point
         //which is when to concede at a faster rate
-        else if (progress < 0.8) {
+        if (progress >= OPENING_PROGRESS && progress < 0.8) {
             setB();
-            return (getTimeDependUtility(progress)) * (this.max - this.min) + this.min;
         }
         //in the later half of the negotiation, the toughness of the opponent affect the concede ratio.
-        else if (progress < 0.99) {
+        else if (progress >= 0.8 && progress < FINAL_PROGRESS) {
             setA();
+        }
+        if (schedule == null) {
+            return computeTargetUtility(progress);
+        }
+        return schedule.getTarget(progress);
+    }
+
+    /**
+     * @param progress the progress
+     * @return the target utility at progress for the current a and b
+     */
+    private double computeTargetUtility(double progress) {
+        if (progress < OPENING_PROGRESS) {
+            return (1 - progress * 0.1) * (this.max - this.min) + this.min;
+        } else if (progress < FINAL_PROGRESS) {
             return (getTimeDependUtility(progress)) * (this.max - this.min) + this.min;
         }
         //only one round left, set the target utility to reservation value.
-        else {
-            return this.min;
-        }
+        return this.min;
+    }
+
+    /**
+     * @return the schedule of the target utility over the session, null
+     * before the first action.
+     */
+    protected ConcessionSchedule getSchedule() {
+        return schedule;
     }
 
     /**
@@ -200,8 +594,12 @@ public class Group42BiddingStrategy implements BiddingStrategy {
      */
     protected void setB() {
         double niceness = getNiceness();
-        this.b = 0.1 + 0.2 * niceness;
+        double newB = 0.1 + 0.2 * niceness;
         // System.out.println(niceness);
+        if (Double.compare(newB, b) != 0) {
+            this.b = newB;
+            rebuildSchedule();
+        }
     }
 
     /**
@@ -209,7 +607,21 @@ public class Group42BiddingStrategy implements BiddingStrategy {
      */
     protected void setA() {
         double niceness = getNiceness();
-        this.a = 5.0 + 2.0 * niceness;
+        double newA = 5.0 + 2.0 * niceness;
+        if (Double.compare(newA, a) != 0) {
+            this.a = newA;
+            rebuildSchedule();
+        }
+    }
+
+    /**
+     * Recomputes the targets of the {@link ConcessionSchedule} from the
+     * current progress on, for the current a and b.
+     */
+    private void rebuildSchedule() {
+        if (schedule != null) {
+            schedule.rebuild(scheduleProgress);
+        }
     }
 
 
@@ -235,11 +647,7 @@ public class Group42BiddingStrategy implements BiddingStrategy {
      * @return the niceness of opponents which should be normalized into a range of [0, 1]
      */
     protected double getNiceness() {
-        SimpleRegression regression = new SimpleRegression();
-        for (List<Double> point : getRecentBids()) {
-            regression.addData(point.get(0), point.get(1));
-        }
-        double slope = regression.getSlope();
+        double slope = getRecentBids().getSlope();
         // System.out.println("slope" + slope);
         // map the slope into range [0, 1]
         slope = Math.min(slope, 0.0);
@@ -247,7 +655,11 @@ public class Group42BiddingStrategy implements BiddingStrategy {
         return -slope;
     }
 
-    protected LinkedList<List<Double>> getRecentBids() {
+    /**
+     * @return the progress and our utility of the recent bids of the
+     * opponent
+     */
+    protected RegressionWindow getRecentBids() {
         return this.recentBids;
     }
 
@@ -260,10 +672,40 @@ public class Group42BiddingStrategy implements BiddingStrategy {
         }
         LinearAdditive profile = (LinearAdditive) prof;
 
+        Parameters parameters = boaState.getSettings().getParameters();
+        // Parameters.get throws if the parameter is missing
+        if (parameters.containsKey(NICE_BID_MODE)) {
+            niceBidMode = NiceBidMode.valueOf(parameters
+                    .get(NICE_BID_MODE, String.class).toUpperCase());
+        }
+        Object window = parameters.get(NICENESS_WINDOW);
+        recentBids = new RegressionWindow(window instanceof Number
+                ? Math.max(2, ((Number) window).intValue())
+                : DEFAULT_NICENESS_WINDOW,
+                parameters.getDouble(NICENESS_DECAY, 1d, Double.MIN_VALUE, 1d));
+
         this.bidSpace = getBidSpace(profile);
+        Object kMin = parameters.get(CANDIDATES_MIN);
+        Object kMax = parameters.get(CANDIDATES_MAX);
+        if (kMin instanceof Number || kMax instanceof Number) {
+            int lo = kMin instanceof Number
+                    ? Math.max(0, ((Number) kMin).intValue()) : 0;
+            int hi = kMax instanceof Number
+                    ? Math.max(lo, ((Number) kMax).intValue())
+                    : Integer.MAX_VALUE;
+            bidSpace.setCandidateBounds(lo, hi);
+        }
+        this.frontier = null;
+        this.opponentTable = null;
+        this.opponentTableScore = null;
+        this.schedule = null;
+        this.scheduleProgress = 0;
 
         min = getMin();
         max = getMax();
+        schedule = new ConcessionSchedule(boaState.getProgress(),
+                this::computeTargetUtility, this::getFixedBidOptions);
+        createLadder();
 
         boaState.getReporter().log(Level.INFO,
                 "Group42 BOA biddingStrategy initialized");
@@ -278,31 +720,36 @@ public class Group42BiddingStrategy implements BiddingStrategy {
      *
      * @param pickedBid bid that the opponent model will evaluate against
      * @return Estimated utility value of last bid from opponent model.
-     * TODO: call the actual API from opponent model
      */
     protected double getOpponentUtility(Bid pickedBid, BoaState boaState) {
+        Group42OpponentModel om = getOpponentModel(boaState);
+        if (om == null) return 0.0;
+        OpponentScore score = om.getScore();
+        if (score == null) return om.getUtility(pickedBid).doubleValue();
+        return score.getUtility(pickedBid);
+    }
+
+    /**
+     * @param boaState {@link BoaState}
+     * @return the model of the (first) opponent, or null if there is none.
+     */
+    protected Group42OpponentModel getOpponentModel(BoaState boaState) {
         Map<PartyId, OpponentModel> oms = boaState.getOpponentModels();
-        if (oms == null) return 0.0;
+        if (oms == null) return null;
         for (PartyId id : oms.keySet()) {
             if (id == me) continue;
-            Group42OpponentModel om = (Group42OpponentModel) oms.get(id);
-            return om.getUtility(pickedBid).doubleValue();
+            return (Group42OpponentModel) oms.get(id);
         }
-        return 0.0;
+        return null;
     }
 
     /**
+     * @param boaState {@link BoaState}
      * @return the most recent bid that was offered, or null if no offer has
      * been done yet.
      */
-    protected Bid getLastBid(List<Action> history) {
-        for (int n = history.size() - 1; n >= 0; n--) {
-            Action action = history.get(n);
-            if (action instanceof Offer) {
-                return ((Offer) action).getBid();
-            }
-        }
-        return null;
+    protected Bid getLastBid(BoaState boaState) {
+        return boaState.getLastBid();
     }
 
     /**
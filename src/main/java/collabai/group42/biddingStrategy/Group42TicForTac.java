@@ -3,10 +3,15 @@ package collabai.group42.biddingStrategy;
 import geniusweb.actions.Action;
 import geniusweb.actions.Offer;
 import collabai.group42.BoaState;
+import collabai.group42.opponent.Group42OpponentModel;
+import collabai.group42.opponent.OpponentScore;
 import geniusweb.issuevalue.Bid;
 import tudelft.utilities.immutablelist.ImmutableList;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class Group42TicForTac extends Group42BiddingStrategy {
 
@@ -14,6 +19,32 @@ public class Group42TicForTac extends Group42BiddingStrategy {
     private double reserValue = 0.0;
     private double maxValue = 1.0;
     private static final int STEP_NUM = 100;
+    /**
+     * name of the parameter that sets {@link #nashEpsilon}.
+     */
+    public static final String NASH_EPSILON = "nashEpsilon";
+    private static final double DEFAULT_NASH_EPSILON = 0.01;
+
+    /**
+     * the nash point is only recomputed if the weighted opponent utility of
+     * some issue value moved more than this since the last recomputation.
+     */
+    private double nashEpsilon = DEFAULT_NASH_EPSILON;
+    /**
+     * candidate bids for each utility level of {@link #updateNashPoint},
+     * built once.
+     */
+    private List<ImmutableList<Bid>> levelBids = null;
+    /**
+     * weighted opponent utility per issue value at the last recomputation.
+     */
+    private double[][] nashOpponent = null;
+    /**
+     * the last score of the opponent model that was checked for moves.
+     */
+    private OpponentScore nashScore = null;
+    private int nashRecomputeCount = 0;
+    private long nashRecomputeNanos = 0;
 
 
     @Override
@@ -22,13 +53,20 @@ public class Group42TicForTac extends Group42BiddingStrategy {
             init(boaState);
         }
 
-        Bid lastBid = getLastBid(boaState.getActionHistory());
+        Bid lastBid = getLastBid(boaState);
 
         double targetUtility = getTargetUtility(
                 boaState.getProgress().get(System.currentTimeMillis()), lastBid, boaState);
 
-        ImmutableList<Bid> bidOptions = bidSpace
-                .getBids((BigDecimal.valueOf(targetUtility)));
+        if (niceBidMode == NiceBidMode.OPTIMAL) {
+            Bid optimal = getOptimalBid(targetUtility, boaState);
+            if (optimal != null) {
+                return new Offer(me, optimal);
+            }
+        }
+
+        ImmutableList<Bid> bidOptions = getBidOptions(
+                BigDecimal.valueOf(targetUtility));
 
         if (bidOptions.size().intValue() == 0)
             return getAlterAction(boaState, targetUtility, lastBid, bidOptions);
@@ -51,16 +89,52 @@ public class Group42TicForTac extends Group42BiddingStrategy {
     }
 
     /**
-     * Update the nash point according to the most recent opponent model.
+     * Update the nash point according to the most recent opponent model. The
+     * nash point is only recomputed if the opponent model moved more than
+     * {@link #nashEpsilon} since the last recomputation. The model did not
+     * move at all if it still has the same {@link OpponentScore}, and then
+     * the issue values are not compared. If the issues are too large to
+     * tabulate, every new score counts as moved. The nash point is read
+     * from the {@link ParetoFrontier} if the domain is indexed, and
+     * estimated by sampling each utility level otherwise.
      */
     protected void updateNashPoint(BoaState boaState) {
+        Group42OpponentModel om = getOpponentModel(boaState);
+        OpponentScore score = om == null ? null : om.getScore();
+        if (score != null && score == nashScore) {
+            return;
+        }
+        nashScore = score;
+        double[][] opponent = getOpponentTable(boaState);
+        if (nashOpponent != null && opponent != null
+                && !hasMoved(nashOpponent, opponent)) {
+            return;
+        }
+        long start = System.nanoTime();
+        ParetoFrontier frontier = opponent == null ? null
+                : getParetoFrontier(opponent);
+        if (frontier != null) {
+            frontier.setReservations(reserValue, getOpponentReservation());
+            int nash = frontier.getNash();
+            if (nash >= 0) {
+                nashPoint[0] = frontier.getUtility(nash);
+                nashPoint[1] = getOpponentUtility(frontier.getBid(nash), boaState);
+            }
+        } else {
+            recomputeNashPoint(boaState);
+        }
+        nashOpponent = opponent;
+        nashRecomputeCount++;
+        nashRecomputeNanos += System.nanoTime() - start;
+    }
+
+    private void recomputeNashPoint(BoaState boaState) {
         double maxProduct = 0.0;
         double step = (maxValue - reserValue) / STEP_NUM;
         for (int i = STEP_NUM; i > 0; i--) {
             double profit = i * step;
             double utility = reserValue + profit;
-            ImmutableList<Bid> bidOptions = bidSpace
-                .getBids((BigDecimal.valueOf(utility)));
+            ImmutableList<Bid> bidOptions = getLevelBids(i, utility);
             if (bidOptions.size().intValue() == 0) continue;
             Bid bid = getNiceBid(bidOptions, boaState);
             double utilityOp = getOpponentUtility(bid, boaState);
@@ -75,6 +149,48 @@ public class Group42TicForTac extends Group42BiddingStrategy {
     }
 
 
+    /**
+     * @param level   the level, in [1, STEP_NUM]
+     * @param utility the target utility of the level
+     * @return the candidate bids of the level
+     */
+    private ImmutableList<Bid> getLevelBids(int level, double utility) {
+        if (levelBids == null) {
+            levelBids = new ArrayList<>(Collections.nCopies(STEP_NUM + 1, null));
+        }
+        ImmutableList<Bid> bids = levelBids.get(level);
+        if (bids == null) {
+            bids = getBidOptions(BigDecimal.valueOf(utility));
+            levelBids.set(level, bids);
+        }
+        return bids;
+    }
+
+    private boolean hasMoved(double[][] before, double[][] after) {
+        for (int i = 0; i < before.length; i++) {
+            for (int o = 0; o < before[i].length; o++) {
+                if (Math.abs(before[i][o] - after[i][o]) > nashEpsilon) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of times the nash point was recomputed
+     */
+    public int getNashRecomputeCount() {
+        return nashRecomputeCount;
+    }
+
+    /**
+     * @return the total time spent recomputing the nash point, in ns
+     */
+    public long getNashRecomputeNanos() {
+        return nashRecomputeNanos;
+    }
+
     /**
      * Retrieve the opponent's reservation value from the opponent model.
      *
@@ -93,6 +209,11 @@ public class Group42TicForTac extends Group42BiddingStrategy {
         super.init(boaState);
         reserValue = getMin();
         maxValue = getMax();
+        nashEpsilon = boaState.getSettings().getParameters().getDouble(
+                NASH_EPSILON, DEFAULT_NASH_EPSILON, 0d, 1d);
+        levelBids = null;
+        nashOpponent = null;
+        nashScore = null;
     }
 
 
@@ -0,0 +1,277 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.UtilitySpace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the bids with the highest estimated opponent utility, subject to our
+ * own utility being at least a target. Both utility functions must be linear
+ * additive: ours is given as a {@link CompiledUtilSpace}, the opponent's as
+ * the weighted utility of every value.
+ * <p>
+ * The search is a depth first branch and bound over the issues, trying the
+ * values that the opponent likes most first. The bound comes from a dynamic
+ * program: with our utilities rounded up to a multiple of a quantum,
+ * bound[i][q] is the highest opponent utility issues i..n-1 can give while
+ * still giving us at least q quanta. Rounding up only loosens our
+ * constraint, so the bound is never too low and the result is exact.
+ * <p>
+ * immutable.
+ */
+public class OpponentBidOptimizer {
+    /**
+     * issues with more values than this are not supported.
+     */
+    public static final long MAX_VALUES = 1 << 16;
+    /**
+     * our highest total utility is divided in this many quanta.
+     */
+    private static final int RESOLUTION = 1000;
+    private static final double EPSILON = 1e-9;
+
+    private final CompiledUtilSpace space;
+    /**
+     * per issue: ordinals sorted descending on opponent utility, and for each
+     * the opponent utility, our utility and our utility in quanta rounded up.
+     */
+    private final int[][] order;
+    private final double[][] oppUtils, myUtils;
+    private final int[][] quanta;
+    private final double quantum;
+    /**
+     * our highest utility of issues i..n-1.
+     */
+    private final double[] myMaxRest;
+    /**
+     * bound[i][q], q is at most the highest total quanta of issues i..n-1.
+     */
+    private final double[][] bound;
+
+    /**
+     * @param space    our compiled profile
+     * @param opponent weighted opponent utility per issue and ordinal, with
+     *                 the issues and ordinals of space.
+     */
+    public OpponentBidOptimizer(CompiledUtilSpace space, double[][] opponent) {
+        if (!isSupported(space)) {
+            throw new IllegalArgumentException(
+                    "issues with more than " + MAX_VALUES + " values are not supported");
+        }
+        this.space = space;
+        int n = space.getNumIssues();
+        double maxTotal = 0;
+        for (int i = 0; i < n; i++) {
+            maxTotal += space.getMaxUtil(i);
+        }
+        quantum = maxTotal > 0 ? maxTotal / RESOLUTION : 1;
+
+        order = new int[n][];
+        oppUtils = new double[n][];
+        myUtils = new double[n][];
+        quanta = new int[n][];
+        for (int i = 0; i < n; i++) {
+            sortIssue(i, opponent[i]);
+        }
+
+        myMaxRest = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            myMaxRest[i] = myMaxRest[i + 1] + space.getMaxUtil(i);
+        }
+
+        bound = new double[n + 1][];
+        bound[n] = new double[]{0};
+        for (int i = n - 1; i >= 0; i--) {
+            double[] next = bound[i + 1];
+            int maxQ = 0;
+            for (int q : quanta[i]) {
+                maxQ = Math.max(maxQ, q);
+            }
+            double[] cur = new double[next.length + maxQ];
+            Arrays.fill(cur, Double.NEGATIVE_INFINITY);
+            for (int v = 0; v < order[i].length; v++) {
+                int qv = quanta[i][v];
+                for (int q = 0; q < cur.length; q++) {
+                    int rest = Math.max(0, q - qv);
+                    if (rest < next.length) {
+                        cur[q] = Math.max(cur[q], oppUtils[i][v] + next[rest]);
+                    }
+                }
+            }
+            bound[i] = cur;
+        }
+    }
+
+    private void sortIssue(int i, double[] opponent) {
+        int size = (int) space.getNumValues(i);
+        Integer[] ords = new Integer[size];
+        for (int o = 0; o < size; o++) {
+            ords[o] = o;
+        }
+        Arrays.sort(ords, (x, y) -> Double.compare(opponent[y], opponent[x]));
+        order[i] = new int[size];
+        oppUtils[i] = new double[size];
+        myUtils[i] = new double[size];
+        quanta[i] = new int[size];
+        for (int v = 0; v < size; v++) {
+            int o = ords[v];
+            order[i][v] = o;
+            oppUtils[i][v] = opponent[o];
+            myUtils[i][v] = space.getWeightedUtil(i, o);
+            quanta[i][v] = (int) Math.max(0,
+                    Math.ceil(myUtils[i][v] / quantum - EPSILON));
+        }
+    }
+
+    /**
+     * @param space our compiled profile
+     * @return true iff an {@link OpponentBidOptimizer} can be made for space
+     */
+    public static boolean isSupported(CompiledUtilSpace space) {
+        for (int i = 0; i < space.getNumIssues(); i++) {
+            if (space.getNumValues(i) > MAX_VALUES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tabulates a linear additive opponent utility by evaluating the
+     * opponent on bids that contain only a single issue.
+     *
+     * @param space    our compiled profile
+     * @param opponent the (estimated) opponent utility, must be linear
+     *                 additive and accept partial bids.
+     * @return the weighted opponent utility per issue and ordinal of space
+     */
+    public static double[][] tabulate(CompiledUtilSpace space,
+                                      UtilitySpace opponent) {
+        double[][] table = new double[space.getNumIssues()][];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = new double[(int) space.getNumValues(i)];
+            for (int o = 0; o < table[i].length; o++) {
+                table[i][o] = opponent.getUtility(new Bid(space.getIssue(i),
+                        space.getValue(i, o))).doubleValue();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @param target our minimum utility
+     * @return the bid with the highest opponent utility of all bids with our
+     * utility at least target, or null if there is no such bid.
+     */
+    public Bid getBestBid(double target) {
+        List<Bid> best = getBestBids(target, 1);
+        return best.isEmpty() ? null : best.get(0);
+    }
+
+    /**
+     * @param target our minimum utility
+     * @param k      the number of bids
+     * @return the k bids with the highest opponent utility of all bids with
+     * our utility at least target, best first. Fewer if there are not
+     * that many such bids.
+     */
+    public List<Bid> getBestBids(double target, int k) {
+        if (k <= 0 || myMaxRest[0] < target - EPSILON) {
+            return Collections.emptyList();
+        }
+        Search search = new Search(target, k);
+        search.run(0, 0, 0);
+        List<Candidate> found = new ArrayList<>(search.best);
+        found.sort((x, y) -> Double.compare(y.opp, x.opp));
+        List<Bid> bids = new ArrayList<>(found.size());
+        for (Candidate c : found) {
+            bids.add(space.getBid(c.ordinals));
+        }
+        return bids;
+    }
+
+    private static class Candidate {
+        final double opp;
+        final long[] ordinals;
+
+        Candidate(double opp, long[] ordinals) {
+            this.opp = opp;
+            this.ordinals = ordinals;
+        }
+    }
+
+    private class Search {
+        private final double target;
+        private final int k;
+        private final long[] ordinals = new long[space.getNumIssues()];
+        /**
+         * the best k so far, worst on top.
+         */
+        private final PriorityQueue<Candidate> best;
+
+        Search(double target, int k) {
+            this.target = target;
+            this.k = k;
+            best = new PriorityQueue<>(k, (x, y) -> Double.compare(x.opp, y.opp));
+        }
+
+        /**
+         * @param d   the issue to choose a value for
+         * @param my  our utility of issues 0..d-1
+         * @param opp opponent utility of issues 0..d-1
+         */
+        void run(int d, double my, double opp) {
+            if (d == ordinals.length) {
+                if (my >= target - EPSILON) {
+                    offer(opp);
+                }
+                return;
+            }
+            for (int v = 0; v < order[d].length; v++) {
+                double newMy = my + myUtils[d][v];
+                if (newMy + myMaxRest[d + 1] < target - EPSILON) {
+                    continue;
+                }
+                double newOpp = opp + oppUtils[d][v];
+                if (newOpp + getBound(d + 1, target - newMy) <= threshold()) {
+                    continue;
+                }
+                ordinals[d] = order[d][v];
+                run(d + 1, newMy, newOpp);
+            }
+        }
+
+        /**
+         * @return the highest opponent utility issues d..n-1 can give while
+         * giving us at least rest.
+         */
+        private double getBound(int d, double rest) {
+            double[] b = bound[d];
+            int q = (int) Math.max(0, Math.ceil(rest / quantum - EPSILON) - 1);
+            return q < b.length ? b[q] : Double.NEGATIVE_INFINITY;
+        }
+
+        /**
+         * @return the opponent utility a bid must beat to be kept
+         */
+        private double threshold() {
+            return best.size() < k ? Double.NEGATIVE_INFINITY
+                    : best.peek().opp + EPSILON;
+        }
+
+        private void offer(double opp) {
+            if (best.size() < k) {
+                best.add(new Candidate(opp, ordinals.clone()));
+            } else if (opp > best.peek().opp) {
+                best.poll();
+                best.add(new Candidate(opp, ordinals.clone()));
+            }
+        }
+    }
+
+}
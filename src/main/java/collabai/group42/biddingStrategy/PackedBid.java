@@ -0,0 +1,65 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Bid} together with its encoding by a {@link BidCodec}. Equality
+ * and hashing only look at the encoding, so two packed bids are equal iff
+ * they have the same values for all issues of the domain. Only packed bids
+ * of the same codec should be compared.
+ * <p>
+ * immutable.
+ */
+public final class PackedBid {
+    private final Bid bid;
+    /**
+     * the fields of the codec, never changed after construction.
+     */
+    final long[] words;
+    private final boolean complete;
+    private final int hash;
+
+    PackedBid(Bid bid, long[] words, boolean complete) {
+        this.bid = bid;
+        this.words = words;
+        this.complete = complete;
+        this.hash = Arrays.hashCode(words);
+    }
+
+    /**
+     * @return the bid. For an interned bid this is the first instance that
+     * was interned with these values.
+     */
+    public Bid getBid() {
+        return bid;
+    }
+
+    /**
+     * @return true iff every issue has a value of the domain
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof PackedBid))
+            return false;
+        PackedBid other = (PackedBid) obj;
+        return hash == other.hash && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public String toString() {
+        return "PackedBid[" + bid + "]";
+    }
+}
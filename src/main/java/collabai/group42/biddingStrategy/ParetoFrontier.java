@@ -0,0 +1,344 @@
+package collabai.group42.biddingStrategy;
+
+import geniusweb.issuevalue.Bid;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The pareto frontier of the bids in a {@link BidIndex}, over our utility
+ * and the (estimated) opponent utility. The opponent utility is linear
+ * additive and given as the weighted utility of every issue value, see
+ * {@link #update(double[][])}.
+ * <p>
+ * Along the frontier our utility goes up and the opponent utility goes down,
+ * so the nicest bid at a target utility and the Kalai-Smorodinsky point are
+ * binary searches. The nash point is found when the frontier is built.
+ * <p>
+ * The index is split in blocks of {@link #BLOCK_SIZE} positions, and the
+ * frontier of every block is kept between updates. When the opponent model
+ * changes, only the issues whose column changed are added to the opponent
+ * utility of each bid, only the blocks with a bid whose utility changed get
+ * a new frontier, and the frontier is merged from the block frontiers. Every
+ * {@link #RESUM_INTERVAL} updates the opponent utilities are summed anew, so
+ * the rounding of the additions does not pile up. Large indices are
+ * processed in parallel.
+ * <p>
+ * Not thread safe.
+ */
+public class ParetoFrontier {
+    /**
+     * indices with more bids than this are processed in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    /**
+     * number of positions per block.
+     */
+    static final int BLOCK_SIZE = 1 << 12;
+    /**
+     * number of incremental updates after which all opponent utilities are
+     * summed anew.
+     */
+    static final int RESUM_INTERVAL = 32;
+    private static final double EPSILON = 1e-9;
+
+    private final BidIndex index;
+    private final CompiledUtilSpace space;
+    /**
+     * opponent utility of every bid in the index, by position.
+     */
+    private final double[] oppUtils;
+    private double[][] opponent = null;
+    /**
+     * the frontier of every block, ascending our utility.
+     */
+    private final int[][] blockFrontiers;
+    /**
+     * positions in the index of the frontier, ascending our utility.
+     */
+    private int[] frontier = new int[0];
+    private double myReservation = 0, oppReservation = 0;
+    private int nash = -1;
+    private int updateCount = 0;
+    private int sinceResum = 0;
+    private long blockRebuildCount = 0;
+
+    /**
+     * @param index the bids
+     * @param space the compiled profile of the index
+     */
+    public ParetoFrontier(BidIndex index, CompiledUtilSpace space) {
+        this.index = index;
+        this.space = space;
+        this.oppUtils = new double[index.size()];
+        this.blockFrontiers = new int[(index.size() + BLOCK_SIZE - 1)
+                / BLOCK_SIZE][];
+    }
+
+    /**
+     * @param opponent the weighted opponent utility per issue and ordinal of
+     *                 the {@link CompiledUtilSpace}
+     * @return true iff the frontier changed, false if opponent is the same
+     * as in the previous update.
+     */
+    public boolean update(double[][] opponent) {
+        int n = space.getNumIssues();
+        double[][] delta = new double[n][];
+        boolean any = false;
+        for (int i = 0; i < n; i++) {
+            if (this.opponent != null
+                    && Arrays.equals(this.opponent[i], opponent[i])) {
+                continue;
+            }
+            any = true;
+            delta[i] = opponent[i].clone();
+            if (this.opponent != null) {
+                for (int o = 0; o < delta[i].length; o++) {
+                    delta[i][o] -= this.opponent[i][o];
+                }
+            }
+        }
+        if (!any) {
+            return false;
+        }
+        boolean resum = this.opponent == null || ++sinceResum >= RESUM_INTERVAL;
+        if (resum) {
+            sinceResum = 0;
+        }
+        boolean[] dirty = new boolean[blockFrontiers.length];
+        blocks().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(oppUtils.length, from + BLOCK_SIZE);
+            boolean changed = resum;
+            for (int pos = from; pos < to; pos++) {
+                if (resum) {
+                    double util = 0d;
+                    for (int i = 0; i < n; i++) {
+                        util += opponent[i][(int) index.getOrdinal(pos, i)];
+                    }
+                    oppUtils[pos] = util;
+                    continue;
+                }
+                double change = 0d;
+                for (int i = 0; i < n; i++) {
+                    if (delta[i] != null) {
+                        change += delta[i][(int) index.getOrdinal(pos, i)];
+                    }
+                }
+                if (change != 0d) {
+                    oppUtils[pos] += change;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                blockFrontiers[block] = build(from, to);
+                dirty[block] = true;
+            }
+        });
+        for (boolean d : dirty) {
+            if (d) {
+                blockRebuildCount++;
+            }
+        }
+        this.opponent = new double[opponent.length][];
+        for (int i = 0; i < opponent.length; i++) {
+            this.opponent[i] = opponent[i].clone();
+        }
+        frontier = merge();
+        updateCount++;
+        findNash();
+        return true;
+    }
+
+    /**
+     * @return the indices of the blocks, parallel for large indices
+     */
+    private IntStream blocks() {
+        IntStream blocks = IntStream.range(0, blockFrontiers.length);
+        return oppUtils.length > PARALLEL_THRESHOLD ? blocks.parallel() : blocks;
+    }
+
+    /**
+     * Frontier of the positions [from, to) of the index.
+     */
+    private int[] build(int from, int to) {
+        int[] result = new int[to - from];
+        int size = 0;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int pos = to - 1; pos >= from; pos--) {
+            if (oppUtils[pos] > best) {
+                best = oppUtils[pos];
+                result[size++] = pos;
+            }
+        }
+        // found descending, return ascending
+        int[] ascending = new int[size];
+        for (int n = 0; n < size; n++) {
+            ascending[n] = result[size - 1 - n];
+        }
+        return ascending;
+    }
+
+    /**
+     * The frontier of the index is the frontier of the top block plus, for
+     * each block below it, the points that beat the best opponent utility of
+     * all blocks above.
+     */
+    private int[] merge() {
+        int[] keeps = new int[blockFrontiers.length];
+        int size = 0;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int block = blockFrontiers.length - 1; block >= 0; block--) {
+            int[] lower = blockFrontiers[block];
+            int keep = 0;
+            while (keep < lower.length && oppUtils[lower[keep]] > best) {
+                keep++;
+            }
+            keeps[block] = keep;
+            size += keep;
+            if (keep > 0) {
+                best = oppUtils[lower[0]];
+            }
+        }
+        int[] result = new int[size];
+        int at = 0;
+        for (int block = 0; block < blockFrontiers.length; block++) {
+            System.arraycopy(blockFrontiers[block], 0, result, at, keeps[block]);
+            at += keeps[block];
+        }
+        return result;
+    }
+
+    /**
+     * @param myReservation  our reservation value
+     * @param oppReservation the opponent's reservation value
+     */
+    public void setReservations(double myReservation, double oppReservation) {
+        this.myReservation = myReservation;
+        this.oppReservation = oppReservation;
+        findNash();
+    }
+
+    private void findNash() {
+        nash = -1;
+        double maxProduct = Double.NEGATIVE_INFINITY;
+        for (int n = 0; n < frontier.length; n++) {
+            double product = (index.getUtility(frontier[n]) - myReservation)
+                    * (oppUtils[frontier[n]] - oppReservation);
+            if (product >= maxProduct) {
+                maxProduct = product;
+                nash = n;
+            }
+        }
+    }
+
+    /**
+     * @return number of points on the frontier
+     */
+    public int size() {
+        return frontier.length;
+    }
+
+    /**
+     * @param n the point, 0 is the point with our lowest utility
+     * @return the bid of the point
+     */
+    public Bid getBid(int n) {
+        return index.getBid(frontier[n]);
+    }
+
+    /**
+     * @param n the point
+     * @return our utility of the point
+     */
+    public double getUtility(int n) {
+        return index.getUtility(frontier[n]);
+    }
+
+    /**
+     * @param n the point
+     * @return the opponent utility of the point
+     */
+    public double getOpponentUtility(int n) {
+        return oppUtils[frontier[n]];
+    }
+
+    /**
+     * @param target our minimum utility
+     * @return the point with the highest opponent utility of all bids with
+     * our utility at least target, or -1 if there is none.
+     */
+    public int getNicest(double target) {
+        int lo = 0, hi = frontier.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getUtility(mid) < target - EPSILON) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == frontier.length ? -1 : lo;
+    }
+
+    /**
+     * @return the point that maximizes the product of the utilities above
+     * the reservation values, or -1 if the frontier is empty.
+     */
+    public int getNash() {
+        return nash;
+    }
+
+    /**
+     * @return the point where the utilities, scaled between the reservation
+     * values and the highest utilities on the frontier, are closest to
+     * equal. -1 if the frontier is empty.
+     */
+    public int getKalaiSmorodinsky() {
+        int last = frontier.length - 1;
+        if (last < 0) {
+            return -1;
+        }
+        double myRange = getUtility(last) - myReservation;
+        double oppRange = getOpponentUtility(0) - oppReservation;
+        // our share goes up and the opponent's down along the frontier
+        int lo = 0, hi = last;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (share(getUtility(mid), myReservation, myRange) < share(
+                    getOpponentUtility(mid), oppReservation, oppRange)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (lo > 0 && gap(lo - 1, myRange, oppRange) < gap(lo, myRange, oppRange)) {
+            return lo - 1;
+        }
+        return lo;
+    }
+
+    private double gap(int n, double myRange, double oppRange) {
+        return Math.abs(share(getUtility(n), myReservation, myRange)
+                - share(getOpponentUtility(n), oppReservation, oppRange));
+    }
+
+    private static double share(double util, double reservation, double range) {
+        return range <= 0 ? 1 : (util - reservation) / range;
+    }
+
+    /**
+     * @return number of updates that changed the frontier
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * @return number of block frontiers that were built, over all updates
+     */
+    public long getBlockRebuildCount() {
+        return blockRebuildCount;
+    }
+
+}
@@ -0,0 +1,132 @@
+package collabai.group42.biddingStrategy;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+
+/**
+ * Least squares line through the last points of a sequence. The points are
+ * kept in a ring buffer of primitives together with the running weighted
+ * sums, so adding a point and getting the slope take constant time and do
+ * not allocate.
+ * <p>
+ * Points can be weighted exponentially: the newest point has weight 1 and
+ * every older point decay times the weight of the point after it. With decay
+ * 1 all points weigh the same and the slope is that of a
+ * {@link SimpleRegression} over the points in the window.
+ * <p>
+ * The sums are recomputed from the buffer every time it wraps around, so
+ * the rounding errors of removing points do not build up.
+ */
+public final class RegressionWindow {
+    /**
+     * the slope is undefined if the spread of x is below this, as in
+     * {@link SimpleRegression}.
+     */
+    private static final double MIN_SPREAD = 10 * Double.MIN_VALUE;
+    /**
+     * relative spread that is taken as rounding noise of equal x's.
+     */
+    private static final double NOISE = 1e-12;
+
+    private final double[] xs, ys;
+    private final double decay;
+    /**
+     * weight of the oldest point of a full window, decay^(capacity - 1).
+     */
+    private final double oldestWeight;
+    private int next = 0, size = 0;
+    private double sumW, sumX, sumY, sumXX, sumXY;
+
+    /**
+     * @param capacity the number of points in the window, at least 1
+     * @param decay    the weight of a point relative to the point after it,
+     *                 in (0, 1]
+     */
+    public RegressionWindow(int capacity, double decay) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        if (!(decay > 0 && decay <= 1)) {
+            throw new IllegalArgumentException("decay must be in (0, 1]");
+        }
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.decay = decay;
+        this.oldestWeight = Math.pow(decay, capacity - 1);
+    }
+
+    /**
+     * Adds a point, removing the oldest point if the window is full.
+     *
+     * @param x the x of the point
+     * @param y the y of the point
+     */
+    public void add(double x, double y) {
+        if (size == xs.length) {
+            double ox = xs[next], oy = ys[next];
+            sumW -= oldestWeight;
+            sumX -= oldestWeight * ox;
+            sumY -= oldestWeight * oy;
+            sumXX -= oldestWeight * ox * ox;
+            sumXY -= oldestWeight * ox * oy;
+        } else {
+            size++;
+        }
+        xs[next] = x;
+        ys[next] = y;
+        next = (next + 1) % xs.length;
+        if (next == 0) {
+            recompute();
+        } else {
+            sumW = decay * sumW + 1;
+            sumX = decay * sumX + x;
+            sumY = decay * sumY + y;
+            sumXX = decay * sumXX + x * x;
+            sumXY = decay * sumXY + x * y;
+        }
+    }
+
+    private void recompute() {
+        sumW = sumX = sumY = sumXX = sumXY = 0;
+        double w = 1;
+        for (int n = 1; n <= size; n++) {
+            int at = (next - n + xs.length) % xs.length;
+            double x = xs[at], y = ys[at];
+            sumW += w;
+            sumX += w * x;
+            sumY += w * y;
+            sumXX += w * x * x;
+            sumXY += w * x * y;
+            w *= decay;
+        }
+    }
+
+    /**
+     * @return the slope of the weighted least squares line through the
+     * points, NaN if there are less than 2 points or if all have the same x.
+     */
+    public double getSlope() {
+        if (size < 2) {
+            return Double.NaN;
+        }
+        double spread = sumXX - sumX * sumX / sumW;
+        if (Math.abs(spread) < MIN_SPREAD
+                || Math.abs(spread) <= NOISE * sumXX) {
+            return Double.NaN;
+        }
+        return (sumXY - sumX * sumY / sumW) / spread;
+    }
+
+    /**
+     * @return the number of points in the window
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the maximum number of points
+     */
+    public int getCapacity() {
+        return xs.length;
+    }
+}
@@ -1,12 +1,16 @@
 package collabai.group42.opponent;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.IntFunction;
 
+import collabai.group42.PersistentDoubleArray;
+import collabai.group42.biddingStrategy.BidCodec;
+import collabai.group42.biddingStrategy.PackedBid;
 import geniusweb.actions.Action;
 import geniusweb.actions.Offer;
 import geniusweb.issuevalue.Bid;
@@ -18,54 +22,156 @@ import geniusweb.issuevalue.NumberValueSet;
 import geniusweb.issuevalue.Value;
 import geniusweb.issuevalue.ValueSet;
 import geniusweb.opponentmodel.OpponentModel;
-import geniusweb.profile.utilityspace.LinearAdditiveUtilitySpace;
-import geniusweb.profile.utilityspace.NumberValueSetUtilities;
-import geniusweb.profile.utilityspace.ValueSetUtilities;
 import geniusweb.progress.Progress;
 import org.apache.commons.math3.analysis.function.Gaussian;
 import org.apache.commons.math3.distribution.LaplaceDistribution;
-import org.apache.commons.math3.distribution.TriangularDistribution;
 
+/**
+ * Frequency model with time dependent learning. Issues and values are
+ * addressed by index: the issue weights are a double[], the value
+ * frequencies of each discrete issue a {@link PersistentDoubleArray} and the
+ * numeric issues are estimated with a {@link SparseKDE}.
+ * <p>
+ * Issues are indexed in alphabetical order. Bids are scored with an
+ * {@link OpponentScore} that is compiled once per version of the model.
+ * Offered bids are interned with the {@link BidCodec} of the session, so the
+ * changed issues of two consecutive bids are found by comparing their
+ * packed forms.
+ * <p>
+ * immutable. An update copies the weights, the counts and the changed chunks
+ * of the frequencies and of the KDEs, and shares everything else with the
+ * previous version. No version is changed after it has been
+ * created, so older versions can be read from other threads while the model
+ * is updated.
+ */
 public class Group42FrequencyModel implements Group42OpponentModel {
 
-    private static final int DECIMALS = 4; // accuracy of our computations.
+    private static final double LEARN_COEF = 0.2;
+    private static final double LEARN_VALUE_ADDITION = 1;
+    private static final double DECAY_COEFFICIENT = 0.2d;
+
+    private final Kernel kernel;
     private final Domain domain;
-    private final Map<String, ValueSetUtilities> utils;
-    private final Map<String, BigDecimal> weights;
-    private final Bid previousBid;
-    private final BigDecimal learnCoef;
-    private final BigDecimal learnValueAddition;
-    private final BigDecimal amountOfIssues;
-    private final BigDecimal goldenValue;
+    private final BidCodec codec;
+    private final String[] issues;
+    /**
+     * value to ordinal, for the discrete issues. null for numeric issues.
+     */
+    private final List<Map<Value, Integer>> ordinals;
+    private final double[] weights;
+    /**
+     * frequency per ordinal, and the sum of the frequencies, for the
+     * discrete issues. null for numeric issues.
+     */
+    private final PersistentDoubleArray[] frequencies;
+    private final double[] counts;
+    /**
+     * estimator for the numeric issues, null for discrete issues.
+     */
+    private final SparseKDE[] kdes;
+    /**
+     * the issue that absorbs the rounding of the weights, see
+     * {@link #getWeight(int)}.
+     */
+    private final int residueIssue;
+    private final double goldenValue;
+    private final PackedBid previousBid;
     private final Bid resBid;
-    private LinearAdditiveUtilitySpace laus;
+    /**
+     * compiled on first use. volatile to publish the contents of the score
+     * to other threads.
+     */
+    private volatile OpponentScore score = null;
 
     public Group42FrequencyModel() {
+        this(Kernel.TRIANGULAR);
+    }
+
+    /**
+     * @param kernel the kernel to estimate the numeric issues with
+     */
+    public Group42FrequencyModel(Kernel kernel) {
+        this.kernel = kernel;
         domain = null;
-        amountOfIssues = BigDecimal.ZERO;
-        goldenValue = BigDecimal.ZERO;
-        learnValueAddition = BigDecimal.ZERO;
-        learnCoef = BigDecimal.ZERO;
-        previousBid = null;
+        codec = null;
+        issues = null;
+        ordinals = null;
         weights = null;
-        utils = null;
+        frequencies = null;
+        counts = null;
+        kdes = null;
+        residueIssue = 0;
+        goldenValue = 0;
+        previousBid = null;
         resBid = null;
-        laus = null;
     }
 
-    public Group42FrequencyModel(Domain domain, Map<String, ValueSetUtilities> utils, Map<String, BigDecimal> weights, BigDecimal learnCoef, BigDecimal learnValueAddition, BigDecimal amountOfIssues, BigDecimal goldenValue, Bid resBid, Bid previousBid) {
-        this.domain = domain;
-        this.utils = utils;
+    /**
+     * internal constructor for an updated version of model. The arrays must
+     * be fresh copies that are not changed afterwards.
+     */
+    private Group42FrequencyModel(Group42FrequencyModel model, double[] weights,
+                                  PersistentDoubleArray[] frequencies,
+                                  double[] counts, SparseKDE[] kdes,
+                                  PackedBid previousBid) {
+        this.kernel = model.kernel;
+        this.domain = model.domain;
+        this.codec = model.codec;
+        this.issues = model.issues;
+        this.ordinals = model.ordinals;
         this.weights = weights;
-        this.learnCoef = learnCoef;
-        this.learnValueAddition = learnValueAddition;
-        this.amountOfIssues = amountOfIssues;
-        this.goldenValue = goldenValue;
-        this.resBid = resBid;
+        this.frequencies = frequencies;
+        this.counts = counts;
+        this.kdes = kdes;
+        this.residueIssue = model.residueIssue;
+        this.goldenValue = model.goldenValue;
+        this.resBid = model.resBid;
         this.previousBid = previousBid;
-        this.laus = null;
     }
 
+    private Group42FrequencyModel(Kernel kernel, BidCodec codec, Bid resBid) {
+        Domain domain = codec.getDomain();
+        this.kernel = kernel;
+        this.domain = domain;
+        this.codec = codec;
+        this.resBid = resBid;
+        this.previousBid = null;
+        List<String> sorted = new ArrayList<>(domain.getIssues());
+        Collections.sort(sorted);
+        int n = sorted.size();
+        issues = sorted.toArray(new String[n]);
+        ordinals = new ArrayList<>(Collections.nCopies(n, null));
+        weights = new double[n];
+        frequencies = new PersistentDoubleArray[n];
+        counts = new double[n];
+        kdes = new SparseKDE[n];
+        goldenValue = LEARN_COEF / n;
+
+        // the first issue of a HashMap of the issues, like the weights map
+        // of the original BigDecimal model.
+        Map<String, Integer> hashed = new HashMap<>();
+        for (String issue : domain.getIssues()) {
+            hashed.put(issue, sorted.indexOf(issue));
+        }
+        residueIssue = hashed.isEmpty() ? 0 : hashed.values().iterator().next();
+
+        for (int i = 0; i < n; i++) {
+            weights[i] = 1d / n;
+            ValueSet vs = domain.getValues(issues[i]);
+            if (vs instanceof NumberValueSet) {
+                kdes[i] = new SparseKDE(kernel, (NumberValueSet) vs);
+            } else {
+                List<DiscreteValue> values = ((DiscreteValueSet) vs).getValues();
+                Map<Value, Integer> ords = new HashMap<>();
+                for (DiscreteValue value : values) {
+                    ords.put(value, ords.size());
+                }
+                ordinals.set(i, ords);
+                frequencies[i] = PersistentDoubleArray.filled(ords.size(), 1d);
+                counts[i] = ords.size();
+            }
+        }
+    }
 
     /**
      * Initializes the model. This function must be called first after
@@ -82,38 +188,12 @@ public class Group42FrequencyModel implements Group42OpponentModel {
      */
     @Override
     public OpponentModel with(Domain domain, Bid resBid) {
-        BigDecimal learnCoef = new BigDecimal("0.2");
-        BigDecimal learnValueAddition = BigDecimal.ONE;
-        BigDecimal amountOfIssues = new BigDecimal(domain.getIssues().size());
-        BigDecimal goldenValue = learnCoef.divide(amountOfIssues, DECIMALS, BigDecimal.ROUND_HALF_EVEN);
-        BigDecimal commonWeight = BigDecimal.ONE.divide(amountOfIssues, DECIMALS, BigDecimal.ROUND_HALF_EVEN);
-
-        // HashMap<String, Issue> us = new HashMap<>();
-        Map<String, ValueSetUtilities> utils = new HashMap<>();
-        Map<String, BigDecimal> weights = new HashMap<>();
-        for (String issue : domain.getIssues()) {
-            // for utils and weights
-            weights.put(issue, commonWeight);
-            ValueSet vs = domain.getValues(issue);
-
-            if (vs instanceof DiscreteValueSet) {
-                DiscreteValueSet dvs = (DiscreteValueSet) vs;
-
-                Map<DiscreteValue, BigDecimal> discreteEstimation = new HashMap<>();
-                for (DiscreteValue x : dvs.getValues()) {
-                    discreteEstimation.put(x, BigDecimal.ONE);
-                }
-                utils.put(issue, new DiscreteUtilities(discreteEstimation));
-            }
-
-            if (vs instanceof NumberValueSet) {
-                NumberValueSet nvs = (NumberValueSet) vs;
-                KDE kde = new KDE(nvs.getRange().getLow(), nvs.getRange().getHigh(), nvs.getRange().getStep());
-                utils.put(issue, kde);
-            }
-        }
+        return new Group42FrequencyModel(kernel, new BidCodec(domain), resBid);
+    }
 
-        return new Group42FrequencyModel(domain, utils, weights, learnCoef, learnValueAddition, amountOfIssues, goldenValue, resBid, null);
+    @Override
+    public Group42FrequencyModel with(BidCodec codec, Bid resBid) {
+        return new Group42FrequencyModel(kernel, codec, resBid);
     }
 
     /**
@@ -128,79 +208,181 @@ public class Group42FrequencyModel implements Group42OpponentModel {
      */
     @Override
     public OpponentModel with(Action action, Progress progress) {
+        return withAll(Collections.singletonList(action), n -> progress);
+    }
+
+    /**
+     * The weights, counts and frequencies are updated in working copies and
+     * the persistent structures are copied once for the whole batch.
+     */
+    @Override
+    public Group42FrequencyModel withAll(List<Action> actions,
+                                         IntFunction<Progress> progress) {
         if (domain == null) {
             throw new IllegalStateException("domain is not initialized");
         }
 
-        if (!(action instanceof Offer)) {
-            return this;
-        }
-
-        Bid newBid = ((Offer) action).getBid();
-        double time = progress.get(System.currentTimeMillis());
-
-        if (previousBid != null) {
-            int numberUnchanged = 0;
-            // TODO change to boolean
-            HashMap<String, Integer> lastDiffSet = determineDifference(previousBid, newBid);
-            for (String issue : lastDiffSet.keySet()) {
-                if (lastDiffSet.get(issue) == 0) {
-                    numberUnchanged++;
+        int n = issues.length;
+        int size = actions.size();
+        double[] newWeights = weights.clone();
+        double[] newCounts = counts.clone();
+        // the additions per issue: ordinal and increment for discrete
+        // issues, value and time for numeric issues.
+        int[][] ords = new int[n][];
+        double[][] amounts = new double[n][];
+        double[][] centers = new double[n][];
+        int[] added = new int[n];
+        PackedBid bid = previousBid;
+        boolean offered = false;
+
+        for (int k = 0; k < size; k++) {
+            Action action = actions.get(k);
+            if (!(action instanceof Offer)) {
+                continue;
+            }
+            offered = true;
+            Bid newBid = ((Offer) action).getBid();
+            PackedBid packed = codec.intern(newBid);
+            double time = progress.apply(k).get(System.currentTimeMillis());
+
+            if (bid != null) {
+                int numberUnchanged = n - codec.countDifferences(bid, packed);
+                double totalSum = 1 + goldenValue * numberUnchanged;
+                double maximumWeight = 1 - n * goldenValue / totalSum;
+                for (int i = 0; i < n; i++) {
+                    if (!codec.isChanged(bid, packed, i)
+                            && maximumWeight > newWeights[i]) {
+                        newWeights[i] = (newWeights[i] + goldenValue) / totalSum;
+                    } else {
+                        newWeights[i] = newWeights[i] / totalSum;
+                    }
                 }
             }
 
-            BigDecimal totalSum = BigDecimal.ONE.add(goldenValue.multiply(new BigDecimal(numberUnchanged)));
-            BigDecimal maximumWeight = BigDecimal.ONE.subtract(amountOfIssues.multiply(goldenValue).divide(totalSum, DECIMALS, BigDecimal.ROUND_HALF_EVEN));
-
-            for (String issue : lastDiffSet.keySet()) {
-                BigDecimal weight = weights.get(issue);
-                BigDecimal newWeight;
-
-                if (lastDiffSet.get(issue) == 0 && maximumWeight.compareTo(weight) > 0) {
-                    newWeight = weight.add(goldenValue).divide(totalSum, DECIMALS, BigDecimal.ROUND_HALF_EVEN);
+            double increment = LEARN_VALUE_ADDITION
+                    * (1 - time * time * time * DECAY_COEFFICIENT);
+            for (int i = 0; i < n; i++) {
+                if (kdes[i] != null) {
+                    Value value = newBid.getValue(issues[i]);
+                    if (value instanceof NumberValue) {
+                        add(i, size, ords, amounts, centers, added, -1, time,
+                                ((NumberValue) value).getValue().doubleValue());
+                    }
                 } else {
-                    newWeight = weight.divide(totalSum, DECIMALS, BigDecimal.ROUND_HALF_EVEN);
+                    long ord = codec.getOrdinal(packed, i);
+                    if (ord >= 0) {
+                        add(i, size, ords, amounts, centers, added, (int) ord,
+                                increment, 0);
+                        newCounts[i] += increment;
+                    }
                 }
-
-                weights.put(issue, newWeight);
             }
+            bid = packed;
         }
 
-        newBid.getIssueValues().forEach((issue, value) -> {
-            if (value instanceof NumberValue) {
-                ((KDE) utils.get(issue)).addValue(value, weights.get(issue), time);
-            } else if (value instanceof DiscreteValue) {
-                ((DiscreteUtilities) utils.get(issue)).addValue(value, learnValueAddition, time);
+        if (!offered) {
+            return this;
+        }
+        PersistentDoubleArray[] newFrequencies = frequencies.clone();
+        SparseKDE[] newKdes = kdes.clone();
+        for (int i = 0; i < n; i++) {
+            if (added[i] == 0) {
+                continue;
             }
-        });
-
-        return new Group42FrequencyModel(domain, utils, weights, learnCoef, learnValueAddition, amountOfIssues, goldenValue, resBid, newBid);
+            if (kdes[i] != null) {
+                newKdes[i] = kdes[i].plusAll(centers[i], amounts[i], added[i]);
+            } else {
+                newFrequencies[i] = frequencies[i].plusAll(ords[i], amounts[i],
+                        added[i]);
+            }
+        }
+        return new Group42FrequencyModel(this, newWeights, newFrequencies,
+                newCounts, newKdes, bid);
     }
 
     /**
-     * Returns if there were any changes to previous bid.
+     * Records an addition for issue, allocating the arrays of the issue on
+     * first use.
      */
-    private HashMap<String, Integer> determineDifference(Bid first, Bid second) {
-        HashMap<String, Integer> diff = new HashMap<>();
-        for (String issue : domain.getIssues()) {
-            Value v1 = first.getValue(issue);
-            Value v2 = second.getValue(issue);
-            diff.put(issue, (v1.equals(v2) ? 0 : 1));
+    private static void add(int issue, int size, int[][] ords,
+                            double[][] amounts, double[][] centers, int[] added,
+                            int ord, double amount, double center) {
+        if (amounts[issue] == null) {
+            ords[issue] = new int[size];
+            amounts[issue] = new double[size];
+            centers[issue] = new double[size];
         }
-        return diff;
+        ords[issue][added[issue]] = ord;
+        amounts[issue][added[issue]] = amount;
+        centers[issue][added[issue]] = center;
+        added[issue]++;
     }
 
     @Override
     public BigDecimal getUtility(Bid bid) {
-        if (laus == null) {
-            normaliseWeights();
-            laus = getUtilitySpace();
+        return BigDecimal.valueOf(getUtilityValue(bid));
+    }
+
+    /**
+     * @param bid the bid, may be partial
+     * @return the estimated utility of bid
+     */
+    public double getUtilityValue(Bid bid) {
+        return getScore().getUtility(bid);
+    }
+
+    @Override
+    public OpponentScore getScore() {
+        OpponentScore compiled = score;
+        if (compiled == null) {
+            // at worst compiled more than once by concurrent readers
+            compiled = compile();
+            score = compiled;
+        }
+        return compiled;
+    }
+
+    @Override
+    public void getUtilities(long[] ordinals, int count, double[] utilities) {
+        getScore().getUtilities(ordinals, count, utilities);
+    }
+
+    private OpponentScore compile() {
+        OpponentScore compiled = new OpponentScore(issues);
+        for (int i = 0; i < issues.length; i++) {
+            double weight = getWeight(i);
+            if (kdes[i] != null) {
+                compiled.setLinear(i, kdes[i].getLowValue(),
+                        weight * kdes[i].getLowUtility(), kdes[i].getHighValue(),
+                        weight * kdes[i].getHighUtility(), kdes[i].getLowValue(),
+                        kdes[i].getStep());
+            } else {
+                double[] table = new double[frequencies[i].size()];
+                for (int o = 0; o < table.length; o++) {
+                    table[o] = weight * frequencies[i].get(o) / counts[i];
+                }
+                compiled.setTable(i, ordinals.get(i), table, 0d);
+            }
         }
-        return laus.getUtility(bid);
+        return compiled;
     }
 
-    private LinearAdditiveUtilitySpace getUtilitySpace() {
-        return new LinearAdditiveUtilitySpace(domain, "Opponent", utils, weights, resBid);
+    /**
+     * The weights are kept summing to 1 at the expense of
+     * {@link #residueIssue}.
+     *
+     * @param issue the issue index
+     * @return the normalised weight of the issue
+     */
+    private double getWeight(int issue) {
+        if (issue != residueIssue) {
+            return weights[issue];
+        }
+        double sum = 0;
+        for (double w : weights) {
+            sum += w;
+        }
+        return weights[issue] + 1 - sum;
     }
 
     @Override
@@ -219,264 +401,79 @@ public class Group42FrequencyModel implements Group42OpponentModel {
     }
 
     /**
-     * Makes sure that the sum of weights are 1, at the expense of the first issue.
+     * The kernels a {@link SparseKDE} can use. All have the same variance as
+     * the triangular kernel with half width bandwidth.
      */
-    private void normaliseWeights() {
-        BigDecimal extra = BigDecimal.ONE.subtract(weights.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add));
-        for (String issue : weights.keySet()) {
-            weights.computeIfPresent(issue, (s, bigDecimal) -> bigDecimal.add(extra));
-            return;
-        }
-    }
-
-    private static class DiscreteUtilities implements ValueSetUtilities {
-
-        private static final double DECAY_COEFFICIENT = 0.2d;
-        private final HashMap<DiscreteValue, BigDecimal> valueFrequencies = new HashMap<>();
-        private BigDecimal count;
-
-        public DiscreteUtilities(Map<DiscreteValue, BigDecimal> valueUtils) {
-            if (valueUtils == null) {
-                throw new NullPointerException("valueUtils==null");
-            }
-
-            this.valueFrequencies.putAll(valueUtils);
-            count = BigDecimal.valueOf(valueFrequencies.size());
-        }
-
-        public void addValue(Value value, BigDecimal amount, double time) {
-            if (!(value instanceof DiscreteValue)) {
-                return;
-            }
-
-            BigDecimal newAmount = getTimeBasedIncrement(amount, time);
-            // BigDecimal newAmount = amount;
-            valueFrequencies.put((DiscreteValue) value, valueFrequencies.get(value).add(newAmount));
-            count = count.add(newAmount);
-        }
+    public enum Kernel {
+        TRIANGULAR, GAUSSIAN, LAPLACE;
 
         /**
-         * y=a*(1-ct^3)
+         * @param width     the width of a bucket
+         * @param bandwidth the half width of the triangular kernel
+         * @param size      the number of buckets
+         * @return the largest bucket offset with a non-zero weight. The
+         * triangular kernel is 0 beyond the bandwidth, the others cover all
+         * buckets.
          */
-        private BigDecimal getTimeBasedIncrement(BigDecimal amount, double time) {
-            // return amount.multiply(BigDecimal.valueOf(Math.exp(-DECAY_COEFFICIENT * time)));
-            return amount.multiply(BigDecimal.ONE.subtract(BigDecimal.valueOf(time * time * time * DECAY_COEFFICIENT)));
-        }
-
-        @Override
-        public BigDecimal getUtility(Value value) {
-            if ((value instanceof DiscreteValue) && valueFrequencies.containsKey(value)) {
-                return valueFrequencies.get(value).divide(count, DECIMALS, BigDecimal.ROUND_HALF_EVEN);
-            }
-            return BigDecimal.ZERO;
-        }
-
-        /**
-         * @return copy of the value-utility pair map.
-         */
-        public Map<DiscreteValue, BigDecimal> getUtilities() {
-            return Collections.unmodifiableMap(valueFrequencies);
-        }
-
-        @Override
-        public String isFitting(ValueSet valueset) {
-            if (!(valueset instanceof DiscreteValueSet)) {
-                return "The utilities are for a discrete valueset but the given values are "
-                  + valueset;
+        int getRadius(double width, double bandwidth, int size) {
+            if (this != TRIANGULAR) {
+                return Math.max(0, size - 1);
             }
-            DiscreteValueSet discvalueset = (DiscreteValueSet) valueset;
-            if (!valueFrequencies.keySet()
-              .equals(new HashSet<>(discvalueset.getValues())))
-                return "The values in the set " + valueset
-                  + " do not match the values mapped to utilities "
-                  + valueFrequencies.keySet();
-            return null;
-        }
-
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append("DiscreteUtilities\n");
-            for (DiscreteValue value : valueFrequencies.keySet()) {
-                sb.append(value).append(": ").append(getUtility(value)).append("\n");
+            int k = 0;
+            while ((k + 1) * width < bandwidth - 1e-9) {
+                k++;
             }
-            return sb.toString();
-        }
-    }
-
-    /**
-     * Use KDE to estimate number value set utility.
-     */
-    private static class KDE implements ValueSetUtilities {
-        private static final double MIN_INTENSITY = 0.8;
-        private final BigDecimal lowValue, highValue, step;
-        private final BigDecimal numValues;
-        private final BigDecimal triangularNormalRange, triangularVariation;
-        private final LinkedHashMap<BigDecimal, BigDecimal> values;
-        private BigDecimal totalArea;
-        private NumberValueSetUtilities nvsu;
-
-        public KDE(BigDecimal lowerBound, BigDecimal upperBound, BigDecimal step) {
-            this.lowValue = lowerBound;
-            this.highValue = upperBound;
-            this.step = step;
-            this.numValues = highValue.subtract(lowValue).divideToIntegralValue(step);
-            this.triangularNormalRange = highValue.subtract(lowValue).divide(BigDecimal.valueOf(2), DECIMALS, BigDecimal.ROUND_HALF_EVEN);
-            this.triangularVariation = highValue.subtract(lowValue).divide(BigDecimal.valueOf(4), DECIMALS, BigDecimal.ROUND_HALF_EVEN);
-            this.values = new LinkedHashMap<>(numValues.intValue());
-
-            // set uniform distribution
-            totalArea = BigDecimal.ZERO;
-            // BigDecimal weight = BigDecimal.ONE.divide(numValues, DECIMALS, BigDecimal.ROUND_HALF_EVEN);
-            for (BigDecimal i = lowValue; i.compareTo(highValue) <= 0; i = i.add(step)) {
-                values.put(i, BigDecimal.ZERO);
-            }
-
-            nvsu = null;
-        }
-
-        public void addValue(Value value, BigDecimal issueWeight, double progress) {
-            if (!(value instanceof NumberValue)) {
-                return;
-            }
-
-            BigDecimal center = ((NumberValue) value).getValue();
-            // BigDecimal bandwidth = mapIssueWeight(issueWeight);
-            BigDecimal bandwidth = triangularNormalRange;
-            BigDecimal factor = mapProgressToBandwidth(progress);
-            TriangularDistribution td = getTriangular(center, bandwidth);
-
-            // add probability for center (only once)
-            BigDecimal probCenter = factor.multiply(getProbability(td, center));
-            values.computeIfPresent(center, (numberValue, bigDecimal) -> {
-                totalArea = totalArea.add(probCenter);
-                BigDecimal result = bigDecimal.add(probCenter);
-                return result;
-            });
-
-            // add probabilities to both sides of center
-            for (BigDecimal i = step; i.compareTo(bandwidth) < 0; i = i.add(step)) {
-                BigDecimal bucket = center.subtract(i);
-                BigDecimal prob = factor.multiply(getProbability(td, bucket));
-
-                // add to left of center
-                values.computeIfPresent(bucket, (numberValue, bigDecimal) -> {
-                    // totalArea = totalArea.add(prob);
-                    BigDecimal result = bigDecimal.add(prob);
-                    return result;
-                });
-
-                // add to right of center
-                values.computeIfPresent(center.add(i), (numberValue, bigDecimal) -> {
-                    // totalArea = totalArea.add(prob);
-                    BigDecimal result = bigDecimal.add(prob);
-                    return result;
-                });
-            }
-
-            nvsu = null;
-        }
-
-        private BigDecimal getProbability(TriangularDistribution td, BigDecimal center) {
-            return BigDecimal.valueOf(td.probability(
-              center.subtract(step.divide(BigDecimal.valueOf(2))).doubleValue(),
-              center.add(step.divide(BigDecimal.valueOf(2))).doubleValue()));
-        }
-
-        public NumberValueSetUtilities getSetUtilities() {
-            return new NumberValueSetUtilities(lowValue, values.get(lowValue).divide(totalArea, DECIMALS, BigDecimal.ROUND_HALF_EVEN), highValue, values.get(highValue).divide(totalArea, DECIMALS, BigDecimal.ROUND_HALF_EVEN));
-        }
-
-        /**
-         * w = weight of issue [0, 1]
-         * tr = {@link #triangularNormalRange}
-         * tv = {@link #triangularVariation}
-         * Lower issue weight returns wider bandwidth
-         * Higher issue weight returns narrower bandwidth
-         * Returns maps weight issue [0, 1] to [tr+tv, tr-tv];
-         * y = -(2tv)*x+tr+tv
-         */
-        public BigDecimal mapIssueWeight(BigDecimal weight) {
-            BigDecimal slope = BigDecimal.valueOf(-2).multiply(triangularVariation);
-            return weight.multiply(slope).add(triangularNormalRange).add(triangularVariation);
-        }
-
-        /**
-         * Linear decreasing mapping function that maps [0, 1] of progress to [1, m].
-         * p=progress, m = minimum mapped intensity
-         * (y = (1-m)(1-x)+m) old
-         * y = 1-cp^3
-         */
-        public BigDecimal mapProgressToBandwidth(double progress) {
-            // return BigDecimal.valueOf((1 - MIN_INTENSITY) * (1 - progress) + MIN_INTENSITY);
-            return BigDecimal.ONE.subtract(BigDecimal.valueOf(progress * progress * progress * (1d - MIN_INTENSITY)));
-        }
-
-        /**
-         * Returns a (symmetrical) triangle distribution (KDE kernel)
-         */
-        public TriangularDistribution getTriangular(BigDecimal center, BigDecimal width) {
-            return new TriangularDistribution(center.subtract(width).doubleValue(), center.doubleValue(), center.add(width).doubleValue());
-        }
-
-        /**
-         * Returns a gaussian curve
-         */
-        public Gaussian getGaussian(BigDecimal center, BigDecimal variance) {
-            return new Gaussian(center.doubleValue(), variance.doubleValue());
+            return k;
         }
 
         /**
-         * Returns a laplacian curve
+         * @param width     the width of a bucket
+         * @param bandwidth the half width of the triangular kernel
+         * @param radius    the largest bucket offset
+         * @return probability of the buckets at offset -radius..radius from
+         * the center.
          */
-        public LaplaceDistribution getLaplace(BigDecimal center, BigDecimal beta) {
-            return new LaplaceDistribution(center.doubleValue(), beta.doubleValue());
-        }
-
-        @Override
-        public BigDecimal getUtility(Value value) {
-            if (nvsu == null) {
-                nvsu = getSetUtilities();
+        double[] tabulate(double width, double bandwidth, int radius) {
+            double[] table = new double[2 * radius + 1];
+            for (int k = 0; k <= radius; k++) {
+                double from = k * width - width / 2, to = k * width + width / 2;
+                double prob;
+                if (bandwidth == 0) {
+                    prob = k == 0 ? 1 : 0;
+                } else if (this == GAUSSIAN) {
+                    // midpoint rule on the density
+                    prob = new Gaussian(0, bandwidth / Math.sqrt(6))
+                            .value(k * width) * width;
+                } else if (this == LAPLACE) {
+                    prob = new LaplaceDistribution(0, bandwidth / Math.sqrt(12))
+                            .probability(from, to);
+                } else {
+                    prob = triangularCdf(to, bandwidth)
+                            - triangularCdf(from, bandwidth);
+                }
+                table[radius + k] = prob;
+                table[radius - k] = prob;
             }
-            return nvsu.getUtility(value);
+            return table;
         }
 
         /**
-         * @param valueset the valueset that is supposed match with this
-         * @return null if the ValueSetUtilities fits the given set of values , that
-         * means it can give utilities for all possible values in valueset.
-         * Or a string containing an explanation why not.
+         * @return cdf at distance x from the center of a symmetric triangular
+         * distribution with the given half width.
          */
-        @Override
-        public String isFitting(ValueSet valueset) {
-
-            if (!(valueset instanceof NumberValueSet)) {
-                return "The utilities are for a number valueset but the given values are "
-                  + valueset;
+        private static double triangularCdf(double x, double width) {
+            if (x <= -width) {
+                return 0;
             }
-            NumberValueSet numvalset = (NumberValueSet) valueset;
-            if (numvalset.getRange().getLow().compareTo(lowValue) != 0) {
-                return "the utilities are specified down to " + lowValue
-                  + " but the valueset starts at "
-                  + numvalset.getRange().getLow();
+            if (x >= width) {
+                return 1;
             }
-            if (numvalset.getRange().getHigh().compareTo(highValue) != 0) {
-                return "the utilities are specified up to " + highValue
-                  + " but the valueset ends at "
-                  + numvalset.getRange().getHigh();
-            }
-
-            return null;
-        }
-
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder("KDE{\n");
-            for (BigDecimal value : values.keySet()) {
-                sb.append(value.toPlainString()).append(": ").append(getUtility(new NumberValue(value))).append("\n");
+            double w2 = 2 * width * width;
+            if (x <= 0) {
+                return (x + width) * (x + width) / w2;
             }
-            return sb.toString();
+            return 1 - (width - x) * (width - x) / w2;
         }
     }
 
-}
\ No newline at end of file
+}
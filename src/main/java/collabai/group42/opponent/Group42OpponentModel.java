@@ -1,7 +1,73 @@
 package collabai.group42.opponent;
 
+import java.util.List;
+import java.util.function.IntFunction;
+
+import collabai.group42.biddingStrategy.BidCodec;
+import geniusweb.actions.Action;
+import geniusweb.issuevalue.Bid;
 import geniusweb.opponentmodel.OpponentModel;
 import geniusweb.profile.utilityspace.UtilitySpace;
+import geniusweb.progress.Progress;
 
 public interface Group42OpponentModel extends OpponentModel, UtilitySpace {
+
+    /**
+     * Like {@link #with(geniusweb.issuevalue.Domain, Bid)}, but offered bids
+     * are interned with codec, so that the model shares the pool of the
+     * session instead of making its own. Models that do not intern bids
+     * ignore the codec.
+     *
+     * @param codec  the codec of the session. Its domain is the domain of
+     *               the model.
+     * @param resBid the reservation bid, or null if no reservationbid is
+     *               available.
+     * @return the initialized model
+     */
+    default Group42OpponentModel with(BidCodec codec, Bid resBid) {
+        return (Group42OpponentModel) with(codec.getDomain(), resBid);
+    }
+
+    /**
+     * The score is built once for every version of the model, so it is cheap
+     * to call this before scoring a batch of bids.
+     *
+     * @return the compiled utility function of this model. Scores the same
+     * as {@link #getUtility(geniusweb.issuevalue.Bid)}, apart from rounding.
+     */
+    OpponentScore getScore();
+
+    /**
+     * Scores many bids at once, without allocating. A bid is given by the
+     * ordinal of each of its values: issues are in alphabetical order and
+     * the ordinal of a value is its position in the issue's ValueSet, as in
+     * {@link collabai.group42.biddingStrategy.CompiledUtilSpace}.
+     *
+     * @param ordinals  the ordinals of count bids one after the other, bid b
+     *                  at [b * n, b * n + n) where n is the number of issues
+     * @param count     the number of bids
+     * @param utilities receives the utility of bid b at index b. Must have
+     *                  room for count bids.
+     */
+    void getUtilities(long[] ordinals, int count, double[] utilities);
+
+    /**
+     * Applies a batch of actions, for instance when replaying a recorded
+     * negotiation. The result is the same as applying the actions one by one
+     * with {@link #with(Action, Progress)}, implementations only avoid the
+     * intermediate models.
+     *
+     * @param actions  the actions, oldest first
+     * @param progress the progress at which the n-th action was done
+     * @return the updated model
+     */
+    default Group42OpponentModel withAll(List<Action> actions,
+                                         IntFunction<Progress> progress) {
+        Group42OpponentModel model = this;
+        for (int n = 0; n < actions.size(); n++) {
+            model = (Group42OpponentModel) model.with(actions.get(n),
+                    progress.apply(n));
+        }
+        return model;
+    }
 }
@@ -1,21 +1,31 @@
 package collabai.group42.opponent;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
 
+import collabai.group42.PersistentIntArray;
+import collabai.group42.biddingStrategy.BidCodec;
+import collabai.group42.biddingStrategy.PackedBid;
 import geniusweb.actions.Action;
 import geniusweb.actions.Offer;
 import geniusweb.issuevalue.Bid;
 import geniusweb.issuevalue.Domain;
 import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
 import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
 import geniusweb.opponentmodel.OpponentModel;
 import geniusweb.profile.utilityspace.NumberValueSetUtilities;
 import geniusweb.profile.utilityspace.UtilitySpace;
 import geniusweb.progress.Progress;
+import tudelft.utilities.immutablelist.Range;
 
 /**
  * implements an {@link OpponentModel} by counting frequencies of bids placed by
@@ -26,6 +36,12 @@ import geniusweb.progress.Progress;
  * (as you might expect as {@link NumberValueSetUtilities} is only affected by
  * the endpoints).
  * <p>
+ * The counts are kept per issue in a {@link PersistentIntArray} indexed by
+ * the ordinal of the value, so an update copies one chunk per issue instead
+ * of all counts. Values that are not in the domain are not counted. Offered
+ * bids are interned with the {@link BidCodec} of the session, which gives
+ * the ordinals without looking up the values.
+ * <p>
  * immutable.
  */
 public class MyFrequencyOpponentModel implements Group42OpponentModel {
@@ -34,53 +50,84 @@ public class MyFrequencyOpponentModel implements Group42OpponentModel {
     private static int serial = 1; // counter for auto name generation
 
     private final Domain domain;
-    private final Map<String, Map<Value, Integer>> bidFrequencies;
-    private final BigDecimal totalBids;
+    private final BidCodec codec;
+    /**
+     * the issues, in alphabetical order, and their values.
+     */
+    private final String[] issues;
+    private final ValueSet[] valueSets;
+    /**
+     * value to ordinal, only for discrete issues.
+     */
+    private final List<Map<Value, Integer>> ordinals;
+    /**
+     * number of times each value was offered, per issue and ordinal.
+     */
+    private final PersistentIntArray[] counts;
+    private final int totalBids;
     private final Bid resBid;
+    /**
+     * compiled on first use. volatile to publish the contents of the score
+     * to other threads.
+     */
+    private volatile OpponentScore score = null;
 
     public MyFrequencyOpponentModel() {
         this.domain = null;
-        this.bidFrequencies = null;
-        this.totalBids = BigDecimal.ZERO;
+        this.codec = null;
+        this.issues = null;
+        this.valueSets = null;
+        this.ordinals = null;
+        this.counts = null;
+        this.totalBids = 0;
         this.resBid = null;
     }
 
     /**
-     * internal constructor. Assumes the freqs keyset is equal to the available
-     * issues.
+     * internal constructor.
      *
-     * @param domain the domain
-     * @param freqs  the observed frequencies for all issue values. This map is
+     * @param model  the model to copy the domain and its tables from
+     * @param counts the observed frequencies of all values. This array is
      *               assumed to be a fresh private-access only copy.
-     * @param total  the total number of bids contained in the freqs map. This
-     *               must be equal to the sum of the Integer values in the
-     *               {@link #bidFrequencies} for each issue (this is not
-     *               checked).
-     * @param resBid the reservation bid. Can be null
+     * @param total  the total number of bids contained in counts.
      */
-    private MyFrequencyOpponentModel(Domain domain,
-                                     Map<String, Map<Value, Integer>> freqs, BigDecimal total,
-                                     Bid resBid) {
-        if (domain == null) {
-            throw new IllegalStateException("domain is not initialized");
-        }
-        this.domain = domain;
-        this.bidFrequencies = freqs;
+    private MyFrequencyOpponentModel(MyFrequencyOpponentModel model,
+                                     PersistentIntArray[] counts, int total) {
+        this.domain = model.domain;
+        this.codec = model.codec;
+        this.issues = model.issues;
+        this.valueSets = model.valueSets;
+        this.ordinals = model.ordinals;
+        this.counts = counts;
         this.totalBids = total;
-        this.resBid = resBid;
+        this.resBid = model.resBid;
     }
 
-    /**
-     * @param freqs
-     * @return deep copy of freqs map.
-     */
-    private static Map<String, Map<Value, Integer>> cloneMap(
-            Map<String, Map<Value, Integer>> freqs) {
-        Map<String, Map<Value, Integer>> map = new HashMap<>();
-        for (String issue : freqs.keySet()) {
-            map.put(issue, new HashMap<Value, Integer>(freqs.get(issue)));
+    private MyFrequencyOpponentModel(BidCodec codec, Bid resBid) {
+        Domain domain = codec.getDomain();
+        List<String> sorted = new ArrayList<>(domain.getIssues());
+        Collections.sort(sorted);
+        int n = sorted.size();
+        this.domain = domain;
+        this.codec = codec;
+        this.issues = sorted.toArray(new String[n]);
+        this.valueSets = new ValueSet[n];
+        this.ordinals = new ArrayList<>(Collections.nCopies(n, null));
+        this.counts = new PersistentIntArray[n];
+        for (int i = 0; i < n; i++) {
+            ValueSet values = domain.getValues(issues[i]);
+            valueSets[i] = values;
+            if (!(values instanceof NumberValueSet)) {
+                Map<Value, Integer> ords = new HashMap<>();
+                for (Value value : values) {
+                    ords.put(value, ords.size());
+                }
+                ordinals.set(i, ords);
+            }
+            counts[i] = PersistentIntArray.zeros(values.size().intValueExact());
         }
-        return map;
+        this.totalBids = 0;
+        this.resBid = resBid;
     }
 
     @Override
@@ -89,10 +136,15 @@ public class MyFrequencyOpponentModel implements Group42OpponentModel {
             throw new NullPointerException("domain is not initialized");
         }
         // FIXME merge already available frequencies?
-        return new MyFrequencyOpponentModel(domain,
-                domain.getIssues().stream().collect(
-                        Collectors.toMap(iss -> iss, iss -> new HashMap<>())),
-                BigDecimal.ZERO, resBid);
+        return new MyFrequencyOpponentModel(new BidCodec(domain), resBid);
+    }
+
+    @Override
+    public MyFrequencyOpponentModel with(BidCodec codec, Bid resBid) {
+        if (codec == null) {
+            throw new NullPointerException("codec is not initialized");
+        }
+        return new MyFrequencyOpponentModel(codec, resBid);
     }
 
     @Override
@@ -104,18 +156,101 @@ public class MyFrequencyOpponentModel implements Group42OpponentModel {
         if (err != null) {
             throw new IllegalArgumentException(err);
         }
-        if (totalBids == BigDecimal.ZERO) {
+        if (totalBids == 0) {
             return BigDecimal.ONE;
         }
         BigDecimal sum = BigDecimal.ZERO;
         // Assume all issues have equal weight.
-        for (String issue : domain.getIssues()) {
-            sum = sum.add(getFraction(issue, bid.getValue(issue)));
+        for (int i = 0; i < issues.length; i++) {
+            sum = sum.add(getFraction(i, bid.getValue(issues[i])));
         }
-        return sum.divide(new BigDecimal(bidFrequencies.size()), DECIMALS,
+        return sum.divide(new BigDecimal(issues.length), DECIMALS,
                 BigDecimal.ROUND_HALF_UP);
     }
 
+    /**
+     * Same as {@link #getUtility(Bid)}, but in double arithmetic, without
+     * rounding and without checking that the bid is complete.
+     *
+     * @param bid the bid, may be partial
+     * @return the estimated utility of bid. Missing issues contribute 0.
+     */
+    public double getUtilityValue(Bid bid) {
+        if (domain == null) {
+            throw new IllegalStateException("domain is not initialized");
+        }
+        double sum = 0d;
+        for (int i = 0; i < issues.length; i++) {
+            Value value = bid.getValue(issues[i]);
+            if (value == null) {
+                continue;
+            }
+            if (totalBids == 0) {
+                sum += 1d;
+            } else {
+                int ord = getOrdinal(i, value);
+                sum += ord < 0 ? 0d : (double) counts[i].get(ord) / totalBids;
+            }
+        }
+        return sum / issues.length;
+    }
+
+    @Override
+    public void getUtilities(long[] ordinals, int count, double[] utilities) {
+        if (domain == null) {
+            throw new IllegalStateException("domain is not initialized");
+        }
+        int n = issues.length;
+        for (int b = 0; b < count; b++) {
+            double sum = 0d;
+            if (totalBids == 0) {
+                sum = n;
+            } else {
+                for (int i = 0, at = b * n; i < n; i++, at++) {
+                    sum += counts[i].get((int) ordinals[at]);
+                }
+                sum /= totalBids;
+            }
+            utilities[b] = sum / n;
+        }
+    }
+
+    /**
+     * Unlike {@link #getUtility(Bid)}, the score also accepts partial bids.
+     */
+    @Override
+    public OpponentScore getScore() {
+        if (domain == null) {
+            throw new IllegalStateException("domain is not initialized");
+        }
+        OpponentScore compiled = score;
+        if (compiled == null) {
+            compiled = new OpponentScore(issues);
+            double share = 1d / issues.length;
+            for (int i = 0; i < issues.length; i++) {
+                if (totalBids == 0) {
+                    compiled.setTable(i, Collections.emptyMap(), new double[0],
+                            share);
+                    continue;
+                }
+                Map<Value, Integer> ords = new HashMap<>();
+                List<Double> utils = new ArrayList<>();
+                for (int o = counts[i].nextNonZero(0); o >= 0;
+                     o = counts[i].nextNonZero(o + 1)) {
+                    ords.put(getValue(i, o), ords.size());
+                    utils.add(share * counts[i].get(o) / totalBids);
+                }
+                double[] table = new double[utils.size()];
+                for (int n = 0; n < table.length; n++) {
+                    table[n] = utils.get(n);
+                }
+                compiled.setTable(i, ords, table, 0d);
+            }
+            score = compiled;
+        }
+        return compiled;
+    }
+
     @Override
     public String getName() {
         if (domain == null) {
@@ -131,29 +266,43 @@ public class MyFrequencyOpponentModel implements Group42OpponentModel {
 
     @Override
     public MyFrequencyOpponentModel with(Action action, Progress progress) {
+        return withAll(Collections.singletonList(action), n -> progress);
+    }
+
+    /**
+     * Collects the ordinals per issue and then copies every touched chunk
+     * of the counters once.
+     */
+    @Override
+    public MyFrequencyOpponentModel withAll(List<Action> actions,
+                                            IntFunction<Progress> progress) {
         if (domain == null) {
             throw new IllegalStateException("domain is not initialized");
         }
 
-        if (!(action instanceof Offer))
-            return this;
-
-        Bid bid = ((Offer) action).getBid();
-        Map<String, Map<Value, Integer>> newFreqs = cloneMap(bidFrequencies);
-        for (String issue : domain.getIssues()) {
-            Map<Value, Integer> freqs = newFreqs.get(issue);
-            Value value = bid.getValue(issue);
-            if (value != null) {
-                Integer oldfreq = freqs.get(value);
-                if (oldfreq == null) {
-                    oldfreq = 0;
+        int[][] ords = new int[issues.length][actions.size()];
+        int[] added = new int[issues.length];
+        int offers = 0;
+        for (Action action : actions) {
+            if (!(action instanceof Offer))
+                continue;
+            offers++;
+            PackedBid bid = codec.intern(((Offer) action).getBid());
+            for (int i = 0; i < issues.length; i++) {
+                long ord = codec.getOrdinal(bid, i);
+                if (ord >= 0) {
+                    ords[i][added[i]++] = (int) ord;
                 }
-                freqs.put(value, oldfreq + 1);
             }
         }
+        if (offers == 0)
+            return this;
 
-        return new MyFrequencyOpponentModel(domain, newFreqs,
-                totalBids.add(BigDecimal.ONE), resBid);
+        PersistentIntArray[] newCounts = counts.clone();
+        for (int i = 0; i < issues.length; i++) {
+            newCounts[i] = counts[i].incrementAll(ords[i], added[i]);
+        }
+        return new MyFrequencyOpponentModel(this, newCounts, totalBids + offers);
     }
 
     /**
@@ -166,30 +315,76 @@ public class MyFrequencyOpponentModel implements Group42OpponentModel {
         if (domain == null) {
             throw new IllegalStateException("domain is not initialized");
         }
-        if (!(bidFrequencies.containsKey(issue))) {
+        int i = Arrays.binarySearch(issues, issue);
+        if (i < 0) {
             return Collections.emptyMap();
         }
-        return Collections.unmodifiableMap(bidFrequencies.get(issue));
+        Map<Value, Integer> map = new HashMap<>();
+        for (int o = counts[i].nextNonZero(0); o >= 0;
+             o = counts[i].nextNonZero(o + 1)) {
+            map.put(getValue(i, o), counts[i].get(o));
+        }
+        return Collections.unmodifiableMap(map);
     }
 
     /**
-     * @param issue the issue to check
+     * @param issue the issue index
      * @param value the value to check
      * @return the fraction of the total cases that bids contained given value
      * for the issue.
      */
-    private BigDecimal getFraction(String issue, Value value) {
-        if (totalBids == BigDecimal.ZERO) {
+    private BigDecimal getFraction(int issue, Value value) {
+        if (totalBids == 0) {
             return BigDecimal.ONE;
         }
-        Integer freq = bidFrequencies.get(issue).get(value);
-        if (freq == null) {
-            freq = 0;
-        }
-        return new BigDecimal(freq).divide(totalBids, DECIMALS,
+        int ord = getOrdinal(issue, value);
+        int freq = ord < 0 ? 0 : counts[issue].get(ord);
+        return new BigDecimal(freq).divide(new BigDecimal(totalBids), DECIMALS,
                 BigDecimal.ROUND_HALF_UP);
     }
 
+    /**
+     * @param issue the issue index
+     * @param value the value
+     * @return ordinal of value in the issue's {@link ValueSet}, or -1 if
+     * value is not in the set.
+     */
+    private int getOrdinal(int issue, Value value) {
+        Map<Value, Integer> ords = ordinals.get(issue);
+        if (ords != null) {
+            Integer ord = ords.get(value);
+            return ord == null ? -1 : ord;
+        }
+        if (!(value instanceof NumberValue)) {
+            return -1;
+        }
+        Range range = ((NumberValueSet) valueSets[issue]).getRange();
+        BigDecimal[] div = ((NumberValue) value).getValue()
+                .subtract(range.getLow()).divideAndRemainder(range.getStep());
+        if (div[1].signum() != 0 || div[0].signum() < 0
+                || div[0].compareTo(BigDecimal.valueOf(counts[issue].size())) >= 0) {
+            return -1;
+        }
+        return div[0].intValue();
+    }
+
+    private Value getValue(int issue, int ordinal) {
+        return valueSets[issue].get(BigInteger.valueOf(ordinal));
+    }
+
+    /**
+     * @return all non-zero counts, per issue
+     */
+    private Map<String, Map<Value, Integer>> getFrequencies() {
+        Map<String, Map<Value, Integer>> freqs = new HashMap<>();
+        if (issues != null) {
+            for (String issue : issues) {
+                freqs.put(issue, getCounts(issue));
+            }
+        }
+        return freqs;
+    }
+
     @Override
     public Bid getReservationBid() {
         return resBid;
@@ -199,11 +394,9 @@ public class MyFrequencyOpponentModel implements Group42OpponentModel {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result
-                + ((bidFrequencies == null) ? 0 : bidFrequencies.hashCode());
+        result = prime * result + getFrequencies().hashCode();
         result = prime * result + ((domain == null) ? 0 : domain.hashCode());
-        result = prime * result
-                + ((totalBids == null) ? 0 : totalBids.hashCode());
+        result = prime * result + totalBids;
         return result;
     }
 
@@ -216,27 +409,19 @@ public class MyFrequencyOpponentModel implements Group42OpponentModel {
         if (getClass() != obj.getClass())
             return false;
         MyFrequencyOpponentModel other = (MyFrequencyOpponentModel) obj;
-        if (bidFrequencies == null) {
-            if (other.bidFrequencies != null)
-                return false;
-        } else if (!bidFrequencies.equals(other.bidFrequencies))
-            return false;
         if (domain == null) {
             if (other.domain != null)
                 return false;
         } else if (!domain.equals(other.domain))
             return false;
-        if (totalBids == null) {
-            if (other.totalBids != null)
-                return false;
-        } else if (!totalBids.equals(other.totalBids))
+        if (totalBids != other.totalBids)
             return false;
-        return true;
+        return getFrequencies().equals(other.getFrequencies());
     }
 
     @Override
     public String toString() {
-        return "MyFrequencyOpponentModel[" + totalBids + "," + bidFrequencies
+        return "MyFrequencyOpponentModel[" + totalBids + "," + getFrequencies()
                 + "]";
     }
 
@@ -11,7 +11,9 @@ import geniusweb.progress.Progress;
 import java.math.BigDecimal;
 import java.security.acl.Group;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntFunction;
 
 public class MyOpponentModel implements Group42OpponentModel {
 
@@ -22,6 +24,11 @@ public class MyOpponentModel implements Group42OpponentModel {
     private final Bid resBid;
 
     private final List<BidWrapper> bidHistory;
+    /**
+     * built on first use. volatile to publish the contents of the score to
+     * other threads.
+     */
+    private volatile OpponentScore score = null;
 
     public MyOpponentModel() {
         this.domain = null;
@@ -114,6 +121,32 @@ public class MyOpponentModel implements Group42OpponentModel {
         return new MyOpponentModel(domain, newBids, resBid);
     }
 
+    /**
+     * Copies the bid history once for the whole batch.
+     */
+    @Override
+    public Group42OpponentModel withAll(List<Action> actions,
+                                        IntFunction<Progress> progress) {
+        if (domain == null) {
+            throw new IllegalStateException("domain is not initialized");
+        }
+
+        final int maxRounds = 200;
+        List<BidWrapper> newBids = cloneList(bidHistory);
+        for (int n = 0; n < actions.size(); n++) {
+            if (!(actions.get(n) instanceof Offer))
+                continue;
+            double p = progress.apply(n).get(System.currentTimeMillis());
+            int roundNum = (int) Math.round(p * maxRounds);
+            newBids.add(new BidWrapper(((Offer) actions.get(n)).getBid(),
+                    roundNum));
+        }
+        if (newBids.size() == bidHistory.size())
+            return this;
+
+        return new MyOpponentModel(domain, newBids, resBid);
+    }
+
     /**
      * @param bid the {@link Bid} to be evaluated
      * @return the utility value of this bid. This MUST return a number in the range
@@ -134,6 +167,29 @@ public class MyOpponentModel implements Group42OpponentModel {
         return BigDecimal.ZERO;
     }
 
+    @Override
+    public OpponentScore getScore() {
+        if (domain == null) {
+            throw new IllegalStateException("domain is not initialized");
+        }
+        OpponentScore zero = score;
+        if (zero == null) {
+            // scores every bid 0, like getUtility
+            zero = new OpponentScore(domain.getIssues().toArray(new String[0]));
+            score = zero;
+        }
+        return zero;
+    }
+
+    @Override
+    public void getUtilities(long[] ordinals, int count, double[] utilities) {
+        if (domain == null) {
+            throw new IllegalStateException("domain is not initialized");
+        }
+        // scores every bid 0, like getUtility
+        Arrays.fill(utilities, 0, count, 0d);
+    }
+
     /**
      * @return the name of this profile. Must be simple name (a-Z, 0-9)
      */
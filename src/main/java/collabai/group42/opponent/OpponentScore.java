@@ -0,0 +1,252 @@
+package collabai.group42.opponent;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import tudelft.utilities.immutablelist.Range;
+
+/**
+ * Snapshot of the utility function of a {@link Group42OpponentModel},
+ * compiled into primitive tables so that bids are scored with double
+ * arithmetic, without {@link BigDecimal}s and without validating the domain.
+ * <p>
+ * The utility is linear additive. An issue is scored either with a table
+ * with the weighted utility of every known value, or with a linear function
+ * over a numeric range; an issue with neither contributes 0.
+ * <p>
+ * immutable.
+ */
+public class OpponentScore {
+
+    private final String[] issues;
+    /**
+     * value to index in {@link #tables}, null if the issue is not tabulated.
+     */
+    private final List<Map<Value, Integer>> ordinals;
+    private final double[][] tables;
+    /**
+     * weighted utility of a value that is not in the table.
+     */
+    private final double[] missing;
+    /**
+     * weighted utility of x is offset + slope * x if lowX &lt;= x &lt;=
+     * highX, and 0 otherwise. Only for issues with linear[i].
+     */
+    private final boolean[] linear;
+    private final double[] lowX, highX, offset, slope;
+    /**
+     * numeric issues: the value with ordinal o is rangeLow + o * rangeStep.
+     */
+    private final double[] rangeLow, rangeStep;
+
+    /**
+     * Scores every bid 0 until issues are tabulated or made linear.
+     *
+     * @param issues the issues, in the order used by the other methods
+     */
+    OpponentScore(String[] issues) {
+        int n = issues.length;
+        this.issues = issues;
+        ordinals = new ArrayList<>(Collections.nCopies(n, null));
+        tables = new double[n][];
+        missing = new double[n];
+        linear = new boolean[n];
+        lowX = new double[n];
+        highX = new double[n];
+        offset = new double[n];
+        slope = new double[n];
+        rangeLow = new double[n];
+        rangeStep = new double[n];
+    }
+
+    /**
+     * Scores issue with a table. Only to be used while building the score.
+     *
+     * @param issue    the issue index
+     * @param ordinals the index in weightedUtils of each known value. Not
+     *                 copied, must not be changed afterwards.
+     * @param weightedUtils the weighted utility of each known value
+     * @param missing  the weighted utility of any other value
+     */
+    void setTable(int issue, Map<Value, Integer> ordinals,
+                  double[] weightedUtils, double missing) {
+        this.ordinals.set(issue, ordinals);
+        this.tables[issue] = weightedUtils;
+        this.missing[issue] = missing;
+    }
+
+    /**
+     * Scores issue with a linear function, like a NumberValueSetUtilities.
+     * Only to be used while building the score.
+     *
+     * @param issue    the issue index
+     * @param low      the lowest value with a non-zero utility
+     * @param lowUtil  the weighted utility of low
+     * @param high     the highest value with a non-zero utility
+     * @param highUtil the weighted utility of high
+     */
+    void setLinear(int issue, double low, double lowUtil, double high,
+                   double highUtil) {
+        setLinear(issue, low, lowUtil, high, highUtil, low, 0d);
+    }
+
+    /**
+     * Like {@link #setLinear(int, double, double, double, double)}, for an
+     * issue that is also scored by ordinal.
+     *
+     * @param rangeLow  the lowest value of the issue's range
+     * @param rangeStep the step of the issue's range
+     */
+    void setLinear(int issue, double low, double lowUtil, double high,
+                   double highUtil, double rangeLow, double rangeStep) {
+        this.rangeLow[issue] = rangeLow;
+        this.rangeStep[issue] = rangeStep;
+        linear[issue] = true;
+        lowX[issue] = low;
+        highX[issue] = high;
+        slope[issue] = high > low ? (highUtil - lowUtil) / (high - low) : 0d;
+        offset[issue] = lowUtil - slope[issue] * low;
+    }
+
+    /**
+     * @param bid the bid to score, may be partial
+     * @return the estimated opponent utility of bid. Issues that are missing
+     * in the bid contribute 0.
+     */
+    public double getUtility(Bid bid) {
+        double util = 0d;
+        for (int i = 0; i < issues.length; i++) {
+            util += getWeightedUtil(i, bid.getValue(issues[i]));
+        }
+        return util;
+    }
+
+    /**
+     * @param issue the issue index
+     * @param value the value, or null
+     * @return the weighted utility of value for the issue, 0 if value is
+     * null.
+     */
+    public double getWeightedUtil(int issue, Value value) {
+        if (value == null) {
+            return 0d;
+        }
+        Map<Value, Integer> ords = ordinals.get(issue);
+        if (ords != null) {
+            Integer ord = ords.get(value);
+            return ord == null ? missing[issue] : tables[issue][ord];
+        }
+        if (!linear[issue] || !(value instanceof NumberValue)) {
+            return 0d;
+        }
+        double x = ((NumberValue) value).getValue().doubleValue();
+        if (x < lowX[issue] || x > highX[issue]) {
+            return 0d;
+        }
+        return offset[issue] + slope[issue] * x;
+    }
+
+    /**
+     * Tabulates the weighted utility of all values of an issue, without
+     * making a bid for each value. Linear issues over a
+     * {@link NumberValueSet} are evaluated with double arithmetic.
+     *
+     * @param issue  the issue index
+     * @param values the values of the issue, for instance from the domain
+     * @return the weighted utility of every value, by position in values
+     * @throws IllegalArgumentException if values has more than
+     *                                  {@link Integer#MAX_VALUE} values
+     */
+    public double[] getWeightedUtils(int issue, ValueSet values) {
+        BigInteger size = values.size();
+        if (size.bitLength() >= Integer.SIZE) {
+            throw new IllegalArgumentException(
+                    "too many values to tabulate: " + size);
+        }
+        double[] utils = new double[size.intValue()];
+        if (ordinals.get(issue) == null && linear[issue]
+                && values instanceof NumberValueSet) {
+            Range range = ((NumberValueSet) values).getRange();
+            double low = range.getLow().doubleValue();
+            double step = range.getStep().doubleValue();
+            for (int o = 0; o < utils.length; o++) {
+                double x = low + o * step;
+                if (x >= lowX[issue] && x <= highX[issue]) {
+                    utils[o] = offset[issue] + slope[issue] * x;
+                }
+            }
+            return utils;
+        }
+        int o = 0;
+        for (Value value : values) {
+            utils[o++] = getWeightedUtil(issue, value);
+        }
+        return utils;
+    }
+
+    /**
+     * Scores bids given by the ordinals of their values. Only for scores
+     * whose tables are indexed by the ordinal of the value in the issue's
+     * ValueSet, and whose linear issues have their range set.
+     *
+     * @param ordinals  the ordinal of every issue of each bid, bid b at
+     *                  [b * n, b * n + n) where n is {@link #getNumIssues()}
+     * @param count     the number of bids
+     * @param utilities receives the utility of bid b at index b
+     */
+    void getUtilities(long[] ordinals, int count, double[] utilities) {
+        int n = issues.length;
+        for (int b = 0; b < count; b++) {
+            double util = 0d;
+            for (int i = 0, at = b * n; i < n; i++, at++) {
+                if (tables[i] != null) {
+                    util += tables[i][(int) ordinals[at]];
+                } else if (linear[i]) {
+                    double x = rangeLow[i] + ordinals[at] * rangeStep[i];
+                    if (x >= lowX[i] && x <= highX[i]) {
+                        util += offset[i] + slope[i] * x;
+                    }
+                }
+            }
+            utilities[b] = util;
+        }
+    }
+
+    /**
+     * @return the number of issues
+     */
+    public int getNumIssues() {
+        return issues.length;
+    }
+
+    /**
+     * @param issue the issue index
+     * @return the name of the issue
+     */
+    public String getIssue(int issue) {
+        return issues[issue];
+    }
+
+    /**
+     * @param issue the name of an issue
+     * @return the index of the issue, or -1 if it is not scored
+     */
+    public int getIssueIndex(String issue) {
+        for (int i = 0; i < issues.length; i++) {
+            if (issues[i].equals(issue)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,256 @@
+package collabai.group42.opponent;
+
+import java.math.BigDecimal;
+
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import geniusweb.profile.utilityspace.NumberValueSetUtilities;
+import geniusweb.profile.utilityspace.ValueSetUtilities;
+import tudelft.utilities.immutablelist.Range;
+
+/**
+ * Kernel density estimate of the values an opponent offers for a numeric
+ * issue. As with a {@link NumberValueSetUtilities}, the utility is
+ * interpolated linearly between the lowest and the highest value.
+ * <p>
+ * The range is divided in at most {@link #MAX_BINS} bins, each a whole
+ * number of steps wide, so the memory does not depend on the size of the
+ * range. Ranges with at most {@link #MAX_BINS} values get a bin per value.
+ * The bins are stored in chunks that are only allocated once a kernel
+ * touches them.
+ * <p>
+ * immutable. {@link #plus(double, double)} copies the touched chunks and
+ * shares the others; {@link #plusAll(double[], double[], int)} does the same
+ * for a batch of values.
+ */
+public final class SparseKDE implements ValueSetUtilities {
+    /**
+     * the maximum number of bins.
+     */
+    public static final int MAX_BINS = 1 << 10;
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final double MIN_INTENSITY = 0.8;
+    private static final double EPSILON = 1e-9;
+
+    private final Range range;
+    private final double lowValue, highValue, step;
+    /**
+     * the width of a bin, a multiple of step.
+     */
+    private final double binWidth;
+    private final int numBins;
+    /**
+     * probability of the bins at offset -radius..radius from the center,
+     * shared by all versions.
+     */
+    private final double[] kernel;
+    private final int radius;
+    /**
+     * the bins in chunks of {@link #WIDTH}, null if never touched.
+     */
+    private final double[][] chunks;
+    private final double totalArea;
+
+    /**
+     * @param kernel the kernel to estimate with
+     * @param values the values of the issue
+     */
+    public SparseKDE(Group42FrequencyModel.Kernel kernel, NumberValueSet values) {
+        this.range = values.getRange();
+        this.lowValue = range.getLow().doubleValue();
+        this.highValue = range.getHigh().doubleValue();
+        this.step = range.getStep().doubleValue();
+        long size = values.size().longValueExact();
+        long stepsPerBin = Math.max(1, (size + MAX_BINS - 1) / MAX_BINS);
+        this.binWidth = stepsPerBin * step;
+        this.numBins = (int) ((size + stepsPerBin - 1) / stepsPerBin);
+        this.radius = kernel.getRadius(binWidth, getBandwidth(), numBins);
+        this.kernel = kernel.tabulate(binWidth, getBandwidth(), radius);
+        this.chunks = new double[(numBins + MASK) >>> BITS][];
+        this.totalArea = 0;
+    }
+
+    private SparseKDE(SparseKDE kde, double[][] chunks, double totalArea) {
+        this.range = kde.range;
+        this.lowValue = kde.lowValue;
+        this.highValue = kde.highValue;
+        this.step = kde.step;
+        this.binWidth = kde.binWidth;
+        this.numBins = kde.numBins;
+        this.kernel = kde.kernel;
+        this.radius = kde.radius;
+        this.chunks = chunks;
+        this.totalArea = totalArea;
+    }
+
+    /**
+     * @return half the width of the triangular kernel
+     */
+    private double getBandwidth() {
+        return (highValue - lowValue) / 2;
+    }
+
+    /**
+     * @param center   the value the opponent offered
+     * @param progress the progress of the negotiation, later values weigh
+     *                 less
+     * @return new estimate with the kernel around center added, or this if
+     * center is not one of the values of the issue.
+     */
+    public SparseKDE plus(double center, double progress) {
+        return plusAll(new double[]{center}, new double[]{progress}, 1);
+    }
+
+    /**
+     * Same as calling {@link #plus(double, double)} for every center in
+     * turn, but copies every touched chunk only once.
+     *
+     * @param centers  the values the opponent offered
+     * @param progress the progress at which each value was offered
+     * @param count    the number of values
+     * @return new estimate with the kernels added, or this if none of the
+     * centers is one of the values of the issue.
+     */
+    public SparseKDE plusAll(double[] centers, double[] progress, int count) {
+        double[][] newchunks = null;
+        boolean[] copied = null;
+        double newArea = totalArea;
+        for (int n = 0; n < count; n++) {
+            double center = centers[n];
+            double pos = (center - lowValue) / step;
+            long ord = Math.round(pos);
+            if (ord < 0 || center > highValue + EPSILON
+                    || Math.abs(pos - ord) > EPSILON) {
+                continue;
+            }
+            if (newchunks == null) {
+                newchunks = chunks.clone();
+                copied = new boolean[chunks.length];
+            }
+            int c = getBin(center);
+            double t = progress[n];
+            double factor = 1 - t * t * t * (1d - MIN_INTENSITY);
+            int from = Math.max(0, c - radius);
+            int to = Math.min(numBins - 1, c + radius);
+            for (int chunk = from >>> BITS; chunk <= to >>> BITS; chunk++) {
+                if (!copied[chunk]) {
+                    newchunks[chunk] = chunks[chunk] == null
+                            ? new double[Math.min(WIDTH, numBins - (chunk << BITS))]
+                            : chunks[chunk].clone();
+                    copied[chunk] = true;
+                }
+            }
+            int offset = radius - c;
+            for (int b = from; b <= to; b++) {
+                newchunks[b >>> BITS][b & MASK] += factor * kernel[b + offset];
+            }
+            // only the center counts for the total, as in the original KDE
+            newArea = newArea + factor * kernel[radius];
+        }
+        return newchunks == null ? this : new SparseKDE(this, newchunks, newArea);
+    }
+
+    private int getBin(double x) {
+        return (int) Math.min(numBins - 1,
+                Math.max(0, Math.round((x - lowValue) / binWidth)));
+    }
+
+    private double getBinValue(int bin) {
+        double[] chunk = chunks[bin >>> BITS];
+        return chunk == null ? 0d : chunk[bin & MASK];
+    }
+
+    /**
+     * @return the estimated utility of the lowest value, 0 if no value has
+     * been added yet.
+     */
+    public double getLowUtility() {
+        return totalArea == 0 ? 0d : getBinValue(0) / totalArea;
+    }
+
+    /**
+     * @return the estimated utility of the highest value, 0 if no value has
+     * been added yet.
+     */
+    public double getHighUtility() {
+        return totalArea == 0 ? 0d : getBinValue(numBins - 1) / totalArea;
+    }
+
+    /**
+     * @return the lowest value of the issue
+     */
+    public double getLowValue() {
+        return lowValue;
+    }
+
+    /**
+     * @return the highest value of the issue
+     */
+    public double getHighValue() {
+        return highValue;
+    }
+
+    /**
+     * @return the step between the values of the issue
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * @return the number of bins
+     */
+    public int getNumBins() {
+        return numBins;
+    }
+
+    /**
+     * @param x the value
+     * @return the estimated utility of x, 0 if x is outside the range or if
+     * no value has been added yet.
+     */
+    public double getUtility(double x) {
+        if (x < lowValue || x > highValue || totalArea == 0) {
+            return 0d;
+        }
+        double low = getLowUtility();
+        if (highValue == lowValue) {
+            return low;
+        }
+        return low + (getHighUtility() - low) * (x - lowValue)
+                / (highValue - lowValue);
+    }
+
+    @Override
+    public BigDecimal getUtility(Value value) {
+        if (!(value instanceof NumberValue)) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(
+                getUtility(((NumberValue) value).getValue().doubleValue()));
+    }
+
+    @Override
+    public String isFitting(ValueSet valueset) {
+        if (!(valueset instanceof NumberValueSet)) {
+            return "The utilities are for a number valueset but the given values are "
+                    + valueset;
+        }
+        if (!range.equals(((NumberValueSet) valueset).getRange())) {
+            return "The range " + ((NumberValueSet) valueset).getRange()
+                    + " does not match the estimated range " + range;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "SparseKDE[" + range + "," + numBins + " bins," + getLowUtility()
+                + "," + getHighUtility() + "]";
+    }
+
+}
@@ -0,0 +1,248 @@
+package collabai.group42;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import collabai.group42.biddingStrategy.PackedBid;
+import collabai.group42.opponent.Group42FrequencyModel;
+import collabai.group42.opponent.Group42OpponentModel;
+import geniusweb.actions.Accept;
+import geniusweb.actions.Action;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.boa.InstantiationFailedException;
+import geniusweb.inform.Settings;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.Value;
+import geniusweb.opponentmodel.OpponentModel;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.progress.ProgressRounds;
+import geniusweb.references.Parameters;
+import geniusweb.references.ProfileRef;
+import geniusweb.references.ProtocolRef;
+import tudelft.utilities.logging.Reporter;
+
+public class BoaStateTest {
+
+    private static final PartyId ME = new PartyId("party1");
+    private static final PartyId OTHER = new PartyId("other");
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private final Reporter reporter = new Reporter() {
+        @Override
+        public void log(Level level, String msg, Throwable thrown) {
+        }
+
+        @Override
+        public void log(Level level, String msg) {
+        }
+    };
+    private LinearAdditive profile;
+    private BoaState state;
+    private Bid low, mid, high;
+
+    @Before
+    public void before() throws IOException, URISyntaxException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+        Settings settings = new Settings(ME,
+                new ProfileRef(new URI("file:" + PROFILE)),
+                new ProtocolRef("SAOP"),
+                new ProgressRounds(200, 0, new Date(Long.MAX_VALUE)),
+                new Parameters());
+        state = new BoaState(reporter)
+                .with(settings, s -> null, (bid, s) -> false,
+                        Group42FrequencyModel.class)
+                .with(profile);
+
+        low = bid("issue1value1", 12);
+        mid = bid("issue1value1", 18);
+        high = bid("issue1value2", 18);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertNull(state.getLastBid());
+        assertNull(state.getMyLastBid());
+        assertNull(state.getBestReceivedBid());
+        assertEquals(0, state.getOfferCount(OTHER));
+    }
+
+    @Test
+    public void testLastBids() throws InstantiationFailedException {
+        BoaState next = state.with(new Offer(OTHER, mid))
+                .with(new Offer(ME, high)).with(new Offer(OTHER, low));
+
+        assertEquals(low, next.getLastBid());
+        assertEquals(low, next.getLastBid(OTHER));
+        assertEquals(high, next.getMyLastBid());
+        assertEquals(2, next.getOfferCount(OTHER));
+        assertEquals(1, next.getOfferCount(ME));
+        assertEquals(3, next.getActionHistory().size());
+    }
+
+    @Test
+    public void testBestReceivedIgnoresOwnOffers()
+            throws InstantiationFailedException {
+        BoaState next = state.with(new Offer(ME, high))
+                .with(new Offer(OTHER, mid)).with(new Offer(OTHER, low));
+
+        assertEquals(mid, next.getBestReceivedBid());
+        assertEquals(profile.getUtility(mid).doubleValue(),
+                next.getBestReceivedUtility(), 1e-9);
+    }
+
+    @Test
+    public void testReceivedBidsAreInterned()
+            throws InstantiationFailedException {
+        BoaState next = state.with(new Offer(OTHER, mid));
+        PackedBid packed = next.getCodec().getInterned(mid);
+        assertEquals(packed, next.getCodec().encode(mid));
+        assertEquals(profile.getUtility(mid).doubleValue(),
+                next.getUtility(packed), 1e-9);
+        assertEquals(profile.getUtility(mid).doubleValue(),
+                next.getUtility(mid), 1e-9);
+    }
+
+    @Test
+    public void testCodecPerSession() throws InstantiationFailedException {
+        BoaState next = state.with(new Offer(OTHER, mid))
+                .with(new Offer(OTHER, bid("issue1value1", 18)));
+        // the model interns in the pool of the session
+        assertEquals(1, next.getCodec().getPoolSize());
+        assertSame(state.getCodec(), next.getCodec());
+        BoaState other = new BoaState(reporter)
+                .with(state.getSettings(), s -> null, (bid, s) -> false,
+                        Group42FrequencyModel.class)
+                .with(profile);
+        assertNotSame(state.getCodec(), other.getCodec());
+        assertEquals(0, other.getCodec().getPoolSize());
+    }
+
+    @Test
+    public void testUtilityCachedForSession()
+            throws InstantiationFailedException {
+        BoaState first = state.with(new Offer(OTHER, mid));
+        double util = first.getUtility(mid);
+        long misses = first.getUtilityCache().getMisses();
+        // an equal bid from another offer shares the entry
+        Bid again = bid("issue1value1", 18);
+        BoaState second = first.with(new Offer(OTHER, again));
+        assertEquals(util, second.getUtility(again), 0d);
+        assertEquals(util, second.getUtility(mid), 0d);
+        assertSame(first.getUtilityCache(), second.getUtilityCache());
+        assertEquals(misses, second.getUtilityCache().getMisses());
+    }
+
+    @Test
+    public void testUtilityNotCachedForBidsNotReceived()
+            throws InstantiationFailedException {
+        Bid other = bid("issue1value2", 18);
+        double util = state.getUtility(other);
+        assertEquals(util, state.getUtility(bid("issue1value2", 18)), 0d);
+        // evaluated directly, without encoding or a cache lookup
+        UtilityCache cache = state.getUtilityCache();
+        assertEquals(0, cache.getHits() + cache.getMisses());
+        assertEquals(0, cache.size());
+        assertEquals(0, state.getCodec().getPoolSize());
+
+        // once received, that instance is looked up
+        BoaState next = state.with(new Offer(OTHER, other));
+        double packed = next.getUtility(other);
+        assertEquals(util, packed, 1e-9);
+        long hits = cache.getHits(), misses = cache.getMisses();
+        assertEquals(packed, next.getUtility(other), 0d);
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+        assertEquals(1, cache.size());
+        // an equal instance that was not received is not
+        assertEquals(util, next.getUtility(bid("issue1value2", 18)), 0d);
+        assertEquals(hits + 1 + misses, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void testNonOffersAreIgnored() throws InstantiationFailedException {
+        BoaState next = state.with(new Offer(OTHER, mid))
+                .with(new Accept(ME, mid));
+        assertEquals(mid, next.getLastBid());
+        assertEquals(0, next.getOfferCount(ME));
+    }
+
+    @Test
+    public void testOlderStateUnchanged() throws InstantiationFailedException {
+        BoaState first = state.with(new Offer(OTHER, low));
+        first.with(new Offer(OTHER, high));
+        assertEquals(low, first.getLastBid());
+        assertEquals(1, first.getOfferCount(OTHER));
+    }
+
+    @Test
+    public void testWithAllSameAsSequential()
+            throws InstantiationFailedException {
+        List<Action> actions = Arrays.asList(new Offer(OTHER, mid),
+                new Offer(ME, high), new Offer(OTHER, low), new Accept(ME, low),
+                new Offer(OTHER, high));
+        BoaState sequential = state;
+        for (Action action : actions) {
+            sequential = sequential.with(action);
+        }
+        BoaState batched = state.withAll(actions);
+
+        assertEquals(sequential.getLastBid(), batched.getLastBid());
+        assertEquals(sequential.getBestReceivedBid(),
+                batched.getBestReceivedBid());
+        assertEquals(sequential.getActionHistory(), batched.getActionHistory());
+        assertEquals(sequential.getProgress(), batched.getProgress());
+        Group42OpponentModel expected = (Group42OpponentModel) sequential
+                .getOpponentModels().get(OTHER);
+        Group42OpponentModel actual = (Group42OpponentModel) batched
+                .getOpponentModels().get(OTHER);
+        for (Bid bid : new AllBidsList(profile.getDomain())) {
+            assertEquals(expected.getUtility(bid), actual.getUtility(bid));
+        }
+    }
+
+    @Test
+    public void testOlderModelsUnchanged() throws InstantiationFailedException {
+        BoaState first = state.with(new Offer(OTHER, low));
+        OpponentModel model = first.getOpponentModels().get(OTHER);
+        first.with(new Offer(OTHER, high));
+        first.withAll(Arrays.asList(new Offer(OTHER, high)));
+        assertSame(model, first.getOpponentModels().get(OTHER));
+    }
+
+    private static Bid bid(String issue1, int issue2) {
+        Map<String, Value> values = new HashMap<>();
+        values.put("issue1", new DiscreteValue(issue1));
+        values.put("issue2", new NumberValue(BigDecimal.valueOf(issue2)));
+        return new Bid(values);
+    }
+
+}
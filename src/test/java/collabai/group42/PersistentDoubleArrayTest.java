@@ -0,0 +1,45 @@
+package collabai.group42;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PersistentDoubleArrayTest {
+
+    private static final int N = 100; // more than three chunks
+
+    @Test
+    public void testFilled() {
+        PersistentDoubleArray array = PersistentDoubleArray.filled(N, 1.5);
+        assertEquals(N, array.size());
+        for (int n = 0; n < N; n++) {
+            assertEquals(1.5, array.get(n), 0d);
+        }
+    }
+
+    @Test
+    public void testOlderVersionsUnchanged() {
+        PersistentDoubleArray first = PersistentDoubleArray.filled(N, 0);
+        PersistentDoubleArray second = first.plus(40, 2).plus(41, 3);
+        PersistentDoubleArray third = second.with(40, 7);
+        for (int n = 0; n < N; n++) {
+            assertEquals(0, first.get(n), 0d);
+        }
+        assertEquals(2, second.get(40), 0d);
+        assertEquals(3, second.get(41), 0d);
+        assertEquals(7, third.get(40), 0d);
+        assertEquals(3, third.get(41), 0d);
+        assertEquals(0, third.get(39), 0d);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() {
+        PersistentDoubleArray.filled(N, 0).get(N);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, PersistentDoubleArray.filled(0, 1).size());
+    }
+
+}
@@ -0,0 +1,62 @@
+package collabai.group42;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PersistentIntArrayTest {
+
+    private static final int N = 40000; // enough for three trie levels
+
+    @Test
+    public void testZeros() {
+        PersistentIntArray array = PersistentIntArray.zeros(N);
+        assertEquals(N, array.size());
+        assertEquals(0, array.get(0));
+        assertEquals(0, array.get(N - 1));
+        assertEquals(-1, array.nextNonZero(0));
+    }
+
+    @Test
+    public void testPlusAndGet() {
+        PersistentIntArray array = PersistentIntArray.zeros(N);
+        for (int n = 0; n < N; n += 7) {
+            array = array.plus(n, n);
+        }
+        for (int n = 0; n < N; n++) {
+            assertEquals(n % 7 == 0 ? n : 0, array.get(n));
+        }
+    }
+
+    @Test
+    public void testOlderVersionsUnchanged() {
+        PersistentIntArray first = PersistentIntArray.zeros(N).plus(5, 1);
+        PersistentIntArray second = first.plus(5, 1).plus(N - 1, 3);
+        assertEquals(1, first.get(5));
+        assertEquals(0, first.get(N - 1));
+        assertEquals(2, second.get(5));
+        assertEquals(3, second.get(N - 1));
+    }
+
+    @Test
+    public void testNextNonZero() {
+        PersistentIntArray array = PersistentIntArray.zeros(N).plus(3, 1)
+                .plus(33000, 2).plus(N - 1, 1).plus(N - 1, -1);
+        assertEquals(3, array.nextNonZero(0));
+        assertEquals(33000, array.nextNonZero(4));
+        assertEquals(-1, array.nextNonZero(33001));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() {
+        PersistentIntArray.zeros(N).plus(N, 1);
+    }
+
+    @Test
+    public void testSmall() {
+        PersistentIntArray array = PersistentIntArray.zeros(1).plus(0, 4);
+        assertEquals(4, array.get(0));
+        assertEquals(0, array.nextNonZero(0));
+    }
+
+}
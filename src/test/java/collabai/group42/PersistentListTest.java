@@ -0,0 +1,88 @@
+package collabai.group42;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PersistentListTest {
+
+    private static final int N = 40000; // enough for three trie levels
+
+    @Test
+    public void testEmpty() {
+        PersistentList<Integer> list = PersistentList.empty();
+        assertEquals(0, list.size());
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void testAppendAndGet() {
+        PersistentList<Integer> list = PersistentList.empty();
+        for (int n = 0; n < N; n++) {
+            list = list.plus(n);
+        }
+        assertEquals(N, list.size());
+        for (int n = 0; n < N; n++) {
+            assertEquals((Integer) n, list.get(n));
+        }
+    }
+
+    @Test
+    public void testOlderVersionsUnchanged() {
+        List<PersistentList<Integer>> versions = new ArrayList<>();
+        PersistentList<Integer> list = PersistentList.empty();
+        for (int n = 0; n < 2000; n++) {
+            versions.add(list);
+            list = list.plus(n);
+        }
+        for (int v = 0; v < versions.size(); v += 37) {
+            PersistentList<Integer> version = versions.get(v);
+            assertEquals(v, version.size());
+            for (int n = 0; n < v; n++) {
+                assertEquals((Integer) n, version.get(n));
+            }
+        }
+    }
+
+    @Test
+    public void testBranching() {
+        PersistentList<Integer> base = PersistentList.empty();
+        for (int n = 0; n < 1100; n++) {
+            base = base.plus(n);
+        }
+        PersistentList<Integer> left = base.plus(-1);
+        PersistentList<Integer> right = base.plus(-2);
+        assertEquals(1100, base.size());
+        assertEquals((Integer) (-1), left.get(1100));
+        assertEquals((Integer) (-2), right.get(1100));
+        assertEquals((Integer) 1099, right.get(1099));
+    }
+
+    @Test
+    public void testEqualsArrayList() {
+        PersistentList<Integer> list = PersistentList.empty();
+        List<Integer> expected = new ArrayList<>();
+        for (int n = 0; n < 100; n++) {
+            list = list.plus(n);
+            expected.add(n);
+        }
+        assertEquals(expected, list);
+        assertEquals(expected.hashCode(), list.hashCode());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnmodifiable() {
+        PersistentList<Integer> list = PersistentList.<Integer>empty().plus(1);
+        list.add(2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRange() {
+        PersistentList.<Integer>empty().plus(1).get(1);
+    }
+
+}
@@ -0,0 +1,52 @@
+package collabai.group42;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UtilityCacheTest {
+
+    @Test
+    public void testGetPut() {
+        UtilityCache cache = new UtilityCache(4);
+        Object key = new Object();
+        assertTrue(Double.isNaN(cache.get(key)));
+        cache.put(key, 0.25);
+        assertEquals(0.25, cache.get(key), 0d);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0d);
+    }
+
+    @Test
+    public void testKeysByValue() {
+        UtilityCache cache = new UtilityCache(4);
+        cache.put("key", 0.5);
+        assertEquals(0.5, cache.get(new String("key")), 0d);
+    }
+
+    @Test
+    public void testBounded() {
+        UtilityCache cache = new UtilityCache(8);
+        for (int n = 0; n < 100; n++) {
+            cache.put(new Object(), n);
+        }
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    public void testUsedEntriesSurvive() {
+        UtilityCache cache = new UtilityCache(3);
+        Object a = new Object(), b = new Object(), c = new Object();
+        cache.put(a, 1);
+        cache.put(b, 2);
+        cache.put(c, 3);
+        cache.get(a);
+        // a was used, so the hand passes it and evicts b
+        cache.put(new Object(), 4);
+        assertEquals(1, cache.get(a), 0d);
+        assertTrue(Double.isNaN(cache.get(b)));
+        assertEquals(3, cache.get(c), 0d);
+    }
+}
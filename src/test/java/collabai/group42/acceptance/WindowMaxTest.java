@@ -0,0 +1,55 @@
+package collabai.group42.acceptance;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class WindowMaxTest {
+
+    @Test
+    public void testEmpty() {
+        WindowMax max = new WindowMax();
+        assertEquals(Double.NEGATIVE_INFINITY, max.max(10), 0d);
+        max.add(0.5);
+        assertEquals(Double.NEGATIVE_INFINITY, max.max(0), 0d);
+    }
+
+    @Test
+    public void testSameAsScan() {
+        Random random = new Random(11);
+        WindowMax max = new WindowMax();
+        List<Double> values = new ArrayList<>();
+        int window = 200;
+        for (int n = 0; n < 1000; n++) {
+            double value = random.nextInt(20) / 20d;
+            max.add(value);
+            values.add(value);
+            // the window only shrinks, relative to the end of the sequence
+            if (random.nextInt(5) == 0 && window > 0) {
+                window--;
+            }
+            double expected = Double.NEGATIVE_INFINITY;
+            for (int i = values.size() - 1; i >= 0
+                    && i >= values.size() - window; i--) {
+                expected = Math.max(expected, values.get(i));
+            }
+            assertEquals(expected, max.max(window), 0d);
+            assertEquals(values.size(), max.size());
+        }
+    }
+
+    @Test
+    public void testDescendingValuesGrow() {
+        WindowMax max = new WindowMax();
+        for (int n = 100; n > 0; n--) {
+            max.add(n);
+        }
+        assertEquals(100, max.max(100), 0d);
+        assertEquals(10, max.max(10), 0d);
+        assertEquals(1, max.max(1), 0d);
+    }
+}
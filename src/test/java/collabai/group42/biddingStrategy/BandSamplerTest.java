@@ -0,0 +1,180 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class BandSamplerTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private LinearAdditive testprofile;
+    private CompiledUtilSpace discrete;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        testprofile = (LinearAdditive) jackson.readValue(serialized,
+                Profile.class);
+        discrete = new CompiledUtilSpace(BidEnumeratorTest
+                .createDiscreteProfile(6, 6, new Random(3)));
+    }
+
+    @Test
+    public void testSamplesInBand() {
+        BandSampler sampler = new BandSampler(discrete);
+        List<Bid> bids = sampler.sample(0.5, 0.52, 200, new Random(1));
+        assertEquals(200, bids.size());
+        for (Bid bid : bids) {
+            double util = discrete.getUtility(bid);
+            assertTrue(util >= 0.5 - EPSILON && util <= 0.52 + EPSILON);
+        }
+    }
+
+    @Test
+    public void testUniform() {
+        BidIndex index = new BidIndex(discrete, 0);
+        double min = 0.87, max = 0.9;
+        int bandSize = index.getBids(min, max).size().intValue();
+        assertTrue(bandSize > 5 && bandSize < 100);
+
+        BandSampler sampler = new BandSampler(discrete);
+        int draws = 1000 * bandSize;
+        Map<Bid, Integer> hits = new HashMap<>();
+        for (Bid bid : sampler.sample(min, max, draws, new Random(5))) {
+            hits.merge(bid, 1, Integer::sum);
+        }
+        assertEquals(bandSize, hits.size());
+        for (int n : hits.values()) {
+            // expected 1000, sd about 32
+            assertEquals(1000, n, 150);
+        }
+    }
+
+    @Test
+    public void testCount() {
+        BidIndex index = new BidIndex(discrete, 0);
+        BandSampler sampler = new BandSampler(discrete);
+        for (double max = 0.2; max < 1; max += 0.1) {
+            double exact = index.getBids(max - 0.05, max).size().doubleValue();
+            assertEquals(exact, sampler.count(max - 0.05, max), 0.05 * exact + 5);
+        }
+    }
+
+    @Test
+    public void testEmptyBand() {
+        BandSampler sampler = new BandSampler(discrete);
+        assertTrue(sampler.sample(1.5, 2, 10, new Random(1)).isEmpty());
+        assertTrue(sampler.sample(0.6, 0.5, 10, new Random(1)).isEmpty());
+        assertEquals(0, sampler.count(1.5, 2), EPSILON);
+    }
+
+    @Test
+    public void testUtilityBelowAndAbove() {
+        BidIndex index = new BidIndex(discrete, Double.NEGATIVE_INFINITY);
+        BandSampler sampler = new BandSampler(discrete);
+        // the rounding of 6 issues moves a total by at most 3 quanta
+        double maxTotal = 0;
+        for (int i = 0; i < discrete.getNumIssues(); i++) {
+            maxTotal += discrete.getMaxUtil(i);
+        }
+        double slack = 3.5 * maxTotal / 10000;
+        for (double target = 0.05; target <= 1; target += 0.01) {
+            double below = sampler.getUtilityBelow(target);
+            if (Double.isNaN(below)) {
+                assertTrue(Double.isNaN(index.getUtilityBelow(target - slack)));
+            } else {
+                assertTrue(below <= target + slack);
+                assertTrue(index.hasBids(below - slack, below + slack));
+                // NaN if there is no bid that low
+                assertFalse(index.getUtilityBelow(target - slack) > below + slack);
+            }
+
+            double above = sampler.getUtilityAbove(target);
+            if (Double.isNaN(above)) {
+                assertTrue(Double.isNaN(index.getUtilityAbove(target + slack)));
+            } else {
+                assertTrue(above >= target - slack);
+                assertTrue(index.hasBids(above - slack, above + slack));
+                assertFalse(index.getUtilityAbove(target + slack) < above - slack);
+            }
+        }
+        assertTrue(Double.isNaN(sampler.getUtilityAbove(2)));
+        assertTrue(Double.isNaN(sampler.getUtilityBelow(-1)));
+    }
+
+    @Test
+    public void testNumericIssue() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(testprofile);
+        BandSampler sampler = new BandSampler(compiled);
+        Set<Bid> expected = new HashSet<>();
+        for (Bid bid : new BidIndex(compiled, 0).getBids(0.4, 0.7)) {
+            expected.add(bid);
+        }
+        assertEquals(expected,
+                new HashSet<>(sampler.sample(0.4, 0.7, 500, new Random(2))));
+    }
+
+    @Test
+    public void testCandidateBounds() {
+        BandSampler sampler = new BandSampler(discrete);
+        for (double target = 0.3; target <= 1.0; target += 0.01) {
+            // too narrow, extended down
+            double low = sampler.getLow(target - 1e-4, target, 10, 50);
+            assertTrue(low <= target - 1e-4);
+            assertTrue(sampler.count(low, target) >= 10);
+            // too wide, cut up
+            low = sampler.getLow(target - 0.3, target, 10, 50);
+            assertTrue(low >= target - 0.3);
+            double count = sampler.count(low, target);
+            assertTrue(count > 0 && count <= 50);
+            // bids are still drawn from the moved band
+            for (Bid bid : sampler.sample(low, target, 10, new Random(2))) {
+                double util = discrete.getUtility(bid);
+                assertTrue(util >= low - EPSILON && util <= target + EPSILON);
+            }
+        }
+        // within the bounds, the band is kept
+        double count = sampler.count(0.7, 0.72);
+        assertEquals(0.7, sampler.getLow(0.7, 0.72, 0, count), 0d);
+        // fewer bids than kMin, all of them
+        assertEquals(0, sampler.getLow(0.1, 0.3, 1e9, 1e9), 0d);
+    }
+
+    @Test
+    public void testExtendedUtilSpace() {
+        ExtendedUtilSpace space = new ExtendedUtilSpace(testprofile);
+        BigDecimal goal = BigDecimal.valueOf(0.5);
+        Set<Bid> expected = new HashSet<>();
+        for (Bid bid : space.getBids(goal)) {
+            expected.add(bid);
+        }
+        assertEquals(expected,
+                new HashSet<>(space.sampleBids(goal, 20, new Random(4))));
+    }
+
+}
@@ -0,0 +1,116 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.Domain;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.ValueSet;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.profile.utilityspace.NumberValueSetUtilities;
+import geniusweb.profile.utilityspace.ValueSetUtilities;
+
+public class BestFirstBidsTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private LinearAdditive testprofile;
+    private CompiledUtilSpace discrete;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        testprofile = (LinearAdditive) jackson.readValue(serialized,
+                Profile.class);
+        discrete = new CompiledUtilSpace(BidEnumeratorTest
+                .createDiscreteProfile(6, 6, new Random(3)));
+    }
+
+    @Test
+    public void testAllBidsDescending() {
+        CompiledUtilSpace space = new CompiledUtilSpace(testprofile);
+        Set<Bid> seen = new HashSet<>();
+        double previous = Double.POSITIVE_INFINITY;
+        for (Bid bid : new BestFirstBids(space)) {
+            double util = space.getUtility(bid);
+            assertTrue(util <= previous + EPSILON);
+            assertTrue(seen.add(bid));
+            previous = util;
+        }
+        assertEquals(new AllBidsList(testprofile.getDomain()).size()
+                .intValue(), seen.size());
+    }
+
+    @Test
+    public void testSameAsIndex() {
+        BidIndex index = new BidIndex(discrete, 0);
+        Iterator<Bid> best = new BestFirstBids(discrete).iterator();
+        Set<Bid> seen = new HashSet<>();
+        for (int n = 1; n <= 2000; n++) {
+            Bid bid = best.next();
+            assertTrue(seen.add(bid));
+            assertEquals(index.getUtility(index.size() - n),
+                    discrete.getUtility(bid), EPSILON);
+        }
+    }
+
+    @Test
+    public void testHugeDomain() {
+        // 10^40 bids, the first ones come without enumerating
+        Map<String, ValueSet> issues = new HashMap<>();
+        Map<String, ValueSetUtilities> utils = new HashMap<>();
+        Map<String, BigDecimal> weights = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            issues.put("issue" + i, new NumberValueSet(BigDecimal.ZERO,
+                    BigDecimal.valueOf(9999), BigDecimal.ONE));
+            // the best value is the last one
+            utils.put("issue" + i, new NumberValueSetUtilities(BigDecimal.ZERO,
+                    BigDecimal.ZERO, BigDecimal.valueOf(9999), BigDecimal.ONE));
+            weights.put("issue" + i, new BigDecimal("0.1"));
+        }
+        CompiledUtilSpace space = new CompiledUtilSpace(
+                new Domain("huge", issues), utils, weights);
+        assertTrue(BestFirstBids.isSupported(space));
+        Iterator<Bid> best = new BestFirstBids(space).iterator();
+        double previous = Double.POSITIVE_INFINITY;
+        for (int n = 0; n < 1000; n++) {
+            double util = space.getUtility(best.next());
+            assertTrue(util <= previous + EPSILON);
+            previous = util;
+        }
+        assertTrue(best.hasNext());
+    }
+
+    @Test
+    public void testExtendedUtilSpace() {
+        ExtendedUtilSpace space = new ExtendedUtilSpace(testprofile);
+        Iterator<Bid> best = space.iterateBestBids();
+        assertEquals(space.getMax().doubleValue(),
+                space.getUtility(best.next()), 1e-7);
+        assertFalse(best.next() == null);
+    }
+}
@@ -0,0 +1,165 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.Domain;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class BidCodecTest {
+
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private LinearAdditive profile;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        BidCodec codec = new BidCodec(profile.getDomain());
+        CompiledUtilSpace space = new CompiledUtilSpace(profile);
+        assertEquals(1, codec.getNumWords());
+        for (Bid bid : new AllBidsList(profile.getDomain())) {
+            PackedBid packed = codec.encode(bid);
+            assertTrue(packed.isComplete());
+            assertEquals(bid, codec.decode(packed));
+            for (int i = 0; i < codec.getNumIssues(); i++) {
+                assertEquals(space.getOrdinal(i, bid.getValue(codec.getIssue(i))),
+                        codec.getOrdinal(packed, i));
+            }
+        }
+    }
+
+    @Test
+    public void testPartialAndUnknownValues() {
+        BidCodec codec = new BidCodec(profile.getDomain());
+        Map<String, Value> values = new HashMap<>();
+        values.put("issue1", new DiscreteValue("unknown"));
+        values.put("issue2", new NumberValue(BigDecimal.valueOf(14)));
+        PackedBid packed = codec.encode(new Bid(values));
+        assertFalse(packed.isComplete());
+        assertEquals(-1, codec.getOrdinal(packed, 0));
+        assertEquals(2, codec.getOrdinal(packed, 1));
+        values.remove("issue1");
+        assertEquals(new Bid(values), codec.decode(packed));
+    }
+
+    @Test
+    public void testEqualityAndDifferences() {
+        BidCodec codec = new BidCodec(profile.getDomain());
+        PackedBid a = codec.encode(bid("issue1value1", 12));
+        assertEquals(a, codec.encode(bid("issue1value1", 12)));
+        assertEquals(a.hashCode(),
+                codec.encode(bid("issue1value1", 12)).hashCode());
+        PackedBid b = codec.encode(bid("issue1value1", 18));
+        PackedBid c = codec.encode(bid("issue1value2", 13));
+        assertEquals(0, codec.countDifferences(a, a));
+        assertEquals(1, codec.countDifferences(a, b));
+        assertEquals(2, codec.countDifferences(a, c));
+        assertFalse(codec.isChanged(a, b, 0));
+        assertTrue(codec.isChanged(a, b, 1));
+    }
+
+    @Test
+    public void testIntern() {
+        BidCodec codec = new BidCodec(profile.getDomain());
+        Bid first = bid("issue1value2", 15);
+        Bid second = bid("issue1value2", 15);
+        assertNotSame(first, second);
+        PackedBid packed = codec.intern(first);
+        assertSame(packed, codec.intern(second));
+        assertSame(first, codec.intern(second).getBid());
+        assertSame(packed, codec.getInterned(second));
+        assertEquals(null, codec.getInterned(bid("issue1value2", 15)));
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        BidCodec codec = new BidCodec(profile.getDomain(), 1);
+        PackedBid first = codec.intern(bid("issue1value1", 12));
+        assertSame(first, codec.intern(bid("issue1value1", 12)));
+        Bid other = bid("issue1value2", 13);
+        PackedBid second = codec.intern(other);
+        // encoded, but the pool is full
+        assertEquals(1, codec.getPoolSize());
+        assertEquals(second, codec.intern(other));
+        assertNotSame(second, codec.intern(other));
+        assertEquals(null, codec.getInterned(other));
+    }
+
+    @Test
+    public void testManyWords() {
+        // 12 issues of 21 bits, 3 per long
+        Map<String, ValueSet> issues = new HashMap<>();
+        for (int i = 0; i < 12; i++) {
+            issues.put("issue" + (char) ('a' + i),
+                    new NumberValueSet(BigDecimal.ZERO,
+                            BigDecimal.valueOf((1 << 20) - 1), BigDecimal.ONE));
+        }
+        Domain domain = new Domain("big", issues);
+        BidCodec codec = new BidCodec(domain);
+        assertEquals(4, codec.getNumWords());
+
+        Random random = new Random(3);
+        for (int n = 0; n < 200; n++) {
+            Map<String, Value> first = new HashMap<>();
+            Map<String, Value> second = new HashMap<>();
+            int expected = 0;
+            for (String issue : issues.keySet()) {
+                long value = random.nextInt(1 << 20);
+                first.put(issue, new NumberValue(BigDecimal.valueOf(value)));
+                if (random.nextBoolean()) {
+                    // differ in the highest, the lowest or some other bit
+                    long other = value ^ (1L << random.nextInt(20));
+                    second.put(issue, new NumberValue(BigDecimal.valueOf(other)));
+                    expected++;
+                } else {
+                    second.put(issue, new NumberValue(BigDecimal.valueOf(value)));
+                }
+            }
+            PackedBid a = codec.encode(new Bid(first));
+            PackedBid b = codec.encode(new Bid(second));
+            assertEquals(new Bid(first), codec.decode(a));
+            assertEquals(expected, codec.countDifferences(a, b));
+            assertEquals(expected == 0, a.equals(b));
+        }
+    }
+
+    private static Bid bid(String issue1, int issue2) {
+        Map<String, Value> values = new HashMap<>();
+        values.put("issue1", new DiscreteValue(issue1));
+        values.put("issue2", new NumberValue(BigDecimal.valueOf(issue2)));
+        return new Bid(values);
+    }
+}
@@ -0,0 +1,220 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.BidsWithUtility;
+import geniusweb.bidspace.Interval;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.DiscreteValueSet;
+import geniusweb.issuevalue.Domain;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.DiscreteValueSetUtilities;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.profile.utilityspace.LinearAdditiveUtilitySpace;
+import geniusweb.profile.utilityspace.NumberValueSetUtilities;
+import geniusweb.profile.utilityspace.ValueSetUtilities;
+
+public class BidEnumeratorTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private LinearAdditive testprofile;
+    private LinearAdditive discreteprofile;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        testprofile = (LinearAdditive) jackson.readValue(serialized,
+                Profile.class);
+        discreteprofile = createDiscreteProfile(6, 6, new Random(3));
+    }
+
+    @Test
+    public void testSameAsBidsWithUtility() {
+        BidEnumerator enumerator = new BidEnumerator(
+                new CompiledUtilSpace(testprofile));
+        BidsWithUtility bidutils = new BidsWithUtility(testprofile);
+        BigDecimal width = new BigDecimal("0.1");
+        for (int n = 0; n <= 22; n++) {
+            BigDecimal max = new BigDecimal("0.05").multiply(BigDecimal.valueOf(n));
+            BigDecimal min = max.subtract(width);
+            Set<Bid> expected = new HashSet<>();
+            for (Bid bid : bidutils.getBids(new Interval(min, max))) {
+                expected.add(bid);
+            }
+            assertEquals(expected, toSet(enumerator.iterator(min.doubleValue(),
+                    max.doubleValue())));
+        }
+    }
+
+    @Test
+    public void testSameAsIndex() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(discreteprofile);
+        BidEnumerator enumerator = new BidEnumerator(compiled);
+        BidIndex index = new BidIndex(compiled, 0);
+        for (double max = 0.1; max <= 1.0; max += 0.1) {
+            double min = max - 0.03;
+            Set<Bid> expected = new HashSet<>();
+            for (Bid bid : index.getBids(min, max)) {
+                expected.add(bid);
+            }
+            assertEquals(expected, toSet(enumerator.iterator(min, max)));
+        }
+    }
+
+    @Test
+    public void testFirstK() {
+        BidEnumerator enumerator = new BidEnumerator(
+                new CompiledUtilSpace(discreteprofile));
+        List<Bid> bids = enumerator.getBids(0.4, 0.6, 10, null);
+        assertEquals(10, bids.size());
+        assertEquals(10, new HashSet<>(bids).size());
+    }
+
+    @Test
+    public void testRandomInInterval() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(discreteprofile);
+        BidEnumerator enumerator = new BidEnumerator(compiled);
+        Iterator<Bid> it = enumerator.iterator(0.7, 0.72, new Random(1));
+        Set<Bid> distinct = new HashSet<>();
+        for (int n = 0; n < 100; n++) {
+            assertTrue(it.hasNext());
+            Bid bid = it.next();
+            double util = compiled.getUtility(bid);
+            assertTrue(util >= 0.7 - EPSILON && util <= 0.72 + EPSILON);
+            distinct.add(bid);
+        }
+        assertTrue(distinct.size() > 1);
+    }
+
+    @Test
+    public void testEmptyInterval() {
+        BidEnumerator enumerator = new BidEnumerator(
+                new CompiledUtilSpace(discreteprofile));
+        assertFalse(enumerator.iterator(1.5, 2).hasNext());
+        assertFalse(enumerator.iterator(1.5, 2, new Random(1)).hasNext());
+        assertTrue(enumerator.getBids(0.6, 0.5, 10, new Random(1)).isEmpty());
+    }
+
+    @Test
+    public void testExtendedUtilSpace() {
+        ExtendedUtilSpace space = new ExtendedUtilSpace(testprofile);
+        BigDecimal goal = BigDecimal.valueOf(0.5);
+        Set<Bid> expected = new HashSet<>();
+        for (Bid bid : space.getBids(goal)) {
+            expected.add(bid);
+        }
+        assertEquals(expected, toSet(space.iterateBids(goal)));
+        assertEquals(expected,
+                new HashSet<>(space.getBids(goal, 5, new Random(2))));
+    }
+
+    @Test
+    public void testExtendedUtilSpaceWithoutIndex() {
+        ExtendedUtilSpace space = new ExtendedUtilSpace(createHugeProfile());
+        assertTrue(space.getIndex() == null);
+        // no estimate of the distribution, the enumerator searches
+        assertTrue(Double.isNaN(space.getUtilityBelow(0.5)));
+        List<Bid> bids = space.getBids(0.49, 0.5, 10, new Random(2));
+        assertEquals(10, bids.size());
+        for (Bid bid : bids) {
+            double util = space.getUtility(bid);
+            assertTrue(util >= 0.49 - EPSILON && util <= 0.5 + EPSILON);
+        }
+        assertTrue(space.getBids(1.5, 2, 10, new Random(2)).isEmpty());
+    }
+
+    private static Set<Bid> toSet(Iterator<Bid> it) {
+        Set<Bid> set = new HashSet<>();
+        while (it.hasNext()) {
+            assertTrue("duplicate bid", set.add(it.next()));
+        }
+        return set;
+    }
+
+    /**
+     * @return profile with the given number of discrete issues and values,
+     * random utilities and (nearly) equal weights.
+     */
+    static LinearAdditive createDiscreteProfile(int numIssues, int numValues,
+                                                Random random) {
+        Map<String, ValueSet> issues = new HashMap<>();
+        Map<String, ValueSetUtilities> utils = new HashMap<>();
+        Map<String, BigDecimal> weights = new HashMap<>();
+        Map<String, Value> rv = new HashMap<>();
+        BigDecimal weight = BigDecimal.ONE.divide(BigDecimal.valueOf(numIssues),
+                8, BigDecimal.ROUND_DOWN);
+        for (int i = 0; i < numIssues; i++) {
+            Map<DiscreteValue, BigDecimal> values = new HashMap<>();
+            for (int v = 0; v < numValues; v++) {
+                values.put(new DiscreteValue("v" + v), BigDecimal
+                        .valueOf(random.nextInt(1000)).movePointLeft(3));
+            }
+            issues.put("issue" + i, new DiscreteValueSet(values.keySet()));
+            utils.put("issue" + i, new DiscreteValueSetUtilities(values));
+            weights.put("issue" + i, i < numIssues - 1 ? weight
+                    : BigDecimal.ONE.subtract(weight.multiply(
+                    BigDecimal.valueOf(numIssues - 1))));
+            rv.put("issue" + i, new DiscreteValue("v0"));
+        }
+        return new LinearAdditiveUtilitySpace(new Domain("discrete", issues),
+                "discreteprofile", utils, weights, new Bid(rv));
+    }
+
+    /**
+     * @return profile with a numeric issue that has too many values for a
+     * {@link BidIndex} or a {@link BandSampler}, and a discrete issue.
+     */
+    static LinearAdditive createHugeProfile() {
+        Map<String, ValueSet> issues = new HashMap<>();
+        Map<String, ValueSetUtilities> utils = new HashMap<>();
+        Map<String, BigDecimal> weights = new HashMap<>();
+        // MAX_VALUES + 1 values
+        BigDecimal high = BigDecimal.valueOf(BandSampler.MAX_VALUES);
+        issues.put("price", new NumberValueSet(BigDecimal.ZERO, high,
+                BigDecimal.ONE));
+        utils.put("price", new NumberValueSetUtilities(BigDecimal.ZERO,
+                BigDecimal.ONE, high, BigDecimal.ZERO));
+        weights.put("price", new BigDecimal("0.6"));
+        Map<DiscreteValue, BigDecimal> colors = new HashMap<>();
+        colors.put(new DiscreteValue("red"), BigDecimal.ONE);
+        colors.put(new DiscreteValue("green"), new BigDecimal("0.3"));
+        issues.put("color", new DiscreteValueSet(colors.keySet()));
+        utils.put("color", new DiscreteValueSetUtilities(colors));
+        weights.put("color", new BigDecimal("0.4"));
+        Map<String, Value> rv = new HashMap<>();
+        rv.put("price", new NumberValue(high));
+        rv.put("color", new DiscreteValue("green"));
+        return new LinearAdditiveUtilitySpace(new Domain("huge", issues),
+                "hugeprofile", utils, weights, new Bid(rv));
+    }
+
+}
@@ -0,0 +1,201 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.bidspace.BidsWithUtility;
+import geniusweb.bidspace.Interval;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import tudelft.utilities.immutablelist.ImmutableList;
+
+public class BidIndexTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private LinearAdditive profile;
+    private CompiledUtilSpace compiled;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+        compiled = new CompiledUtilSpace(profile);
+    }
+
+    @Test
+    public void testContainsAllBids() {
+        BidIndex index = new BidIndex(compiled, 0);
+        assertEquals(new AllBidsList(profile.getDomain()).size().intValue(),
+                index.size());
+        Set<Bid> seen = new HashSet<>();
+        for (int pos = 0; pos < index.size(); pos++) {
+            Bid bid = index.getBid(pos);
+            assertTrue(seen.add(bid));
+            assertEquals(profile.getUtility(bid).doubleValue(),
+                    index.getUtility(pos), 1e-7);
+            if (pos > 0) {
+                assertTrue(index.getUtility(pos - 1) <= index.getUtility(pos));
+            }
+        }
+    }
+
+    @Test
+    public void testIntervalSameAsBidsWithUtility() {
+        BidIndex index = new BidIndex(compiled, 0);
+        BidsWithUtility bidutils = new BidsWithUtility(profile);
+        BigDecimal width = new BigDecimal("0.1");
+        for (int n = 4; n <= 20; n++) {
+            BigDecimal max = new BigDecimal("0.05").multiply(BigDecimal.valueOf(n));
+            BigDecimal min = max.subtract(width);
+            Set<Bid> expected = toSet(bidutils.getBids(new Interval(min, max)));
+            assertEquals(expected, toSet(
+                    index.getBids(min.doubleValue(), max.doubleValue())));
+        }
+    }
+
+    @Test
+    public void testEmptyInterval() {
+        BidIndex index = new BidIndex(compiled, 0);
+        assertEquals(0, index.getBids(0.5, 0.4).size().intValue());
+        assertEquals(0, index.getBids(1.5, 2).size().intValue());
+    }
+
+    @Test
+    public void testPruning() {
+        BidIndex index = new BidIndex(compiled, 0.5);
+        assertTrue(index.size() > 0);
+        assertTrue(index.size() < new BidIndex(compiled, 0).size());
+        assertTrue(index.getUtility(0) >= 0.5 - EPSILON);
+        assertNull(new BidIndex(compiled, 2).getNearest(0.5));
+    }
+
+    @Test
+    public void testNearest() {
+        BidIndex index = new BidIndex(compiled, 0);
+        for (double target = 0; target <= 1.1; target += 0.01) {
+            double best = Double.MAX_VALUE;
+            for (int pos = 0; pos < index.size(); pos++) {
+                best = Math.min(best, Math.abs(index.getUtility(pos) - target));
+            }
+            int pos = index.getNearestPosition(target);
+            assertEquals(best, Math.abs(index.getUtility(pos) - target),
+                    EPSILON);
+        }
+    }
+
+    @Test
+    public void testUtilityBelowAndAbove() {
+        BidIndex index = new BidIndex(compiled, 0);
+        for (double target = -0.1; target <= 1.1; target += 0.01) {
+            double below = Double.NaN, above = Double.NaN;
+            for (int pos = 0; pos < index.size(); pos++) {
+                double util = index.getUtility(pos);
+                // the index allows for rounding, like getBids
+                if (util <= target + 1e-9 && !(util <= below)) {
+                    below = util;
+                }
+                if (util >= target - 1e-9 && !(util >= above)) {
+                    above = util;
+                }
+            }
+            assertEquals(below, index.getUtilityBelow(target), 0d);
+            assertEquals(above, index.getUtilityAbove(target), 0d);
+            assertEquals(index.getBids(target - 0.05, target).size().intValue() > 0,
+                    index.hasBids(target - 0.05, target));
+        }
+    }
+
+    @Test
+    public void testCandidateBounds() {
+        LinearAdditive large = BidEnumeratorTest.createDiscreteProfile(6, 6,
+                new Random(3));
+        BidIndex index = new BidIndex(new CompiledUtilSpace(large), 0);
+        for (double target = 0.2; target <= 1.0; target += 0.01) {
+            int below = index.getBids(0, target).size().intValue();
+            // narrow band, extended to at least 10 bids
+            ImmutableList<Bid> narrow = index.getBids(target - 1e-4, target,
+                    10, 50);
+            int size = narrow.size().intValue();
+            assertEquals(Math.min(below, Math.max(size, 10)), size);
+            assertTrue(size <= 50);
+            // wide band, cut to the 50 bids closest to the target
+            ImmutableList<Bid> wide = index.getBids(target - 0.3, target, 10,
+                    50);
+            assertEquals(Math.min(below, 50), wide.size().intValue());
+            if (below > 0) {
+                assertEquals(index.getUtilityBelow(target), large.getUtility(
+                        wide.get(below > 50 ? 49 : below - 1)).doubleValue(),
+                        1e-7);
+            }
+            if (below > 50) {
+                double low = index.getLow(target - 0.3, target, 10, 50);
+                assertEquals(large.getUtility(wide.get(0)).doubleValue(), low,
+                        1e-7);
+            }
+            // no bounds is the plain band
+            assertEquals(index.getBids(target - 0.05, target).size(),
+                    index.getBids(target - 0.05, target, 0,
+                            Integer.MAX_VALUE).size());
+        }
+    }
+
+    @Test
+    public void testExtendedUtilSpaceCandidateBounds() {
+        ExtendedUtilSpace space = new ExtendedUtilSpace(
+                BidEnumeratorTest.createDiscreteProfile(6, 6, new Random(3)));
+        space.setCandidateBounds(5, 30);
+        for (double target = 0.2; target <= 1.0; target += 0.05) {
+            BigDecimal goal = BigDecimal.valueOf(target);
+            int size = space.getBids(goal).size().intValue();
+            // bids below the reservation value are not indexed
+            int below = space.getIndex().getBids(0, target).size().intValue();
+            assertTrue(size >= Math.min(5, below) && size <= 30);
+            for (Bid bid : space.sampleBids(goal, 20, new Random(1))) {
+                double util = space.getUtility(bid);
+                assertTrue(util >= space.getLow(target) - EPSILON
+                        && util <= target + EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void testIsIndexable() {
+        assertTrue(BidIndex.isIndexable(compiled));
+        ExtendedUtilSpace space = new ExtendedUtilSpace(profile);
+        assertFalse(space.getIndex() == null);
+        assertEquals(space.getMax().doubleValue(),
+                space.getIndex().getUtility(space.getIndex().size() - 1),
+                1e-7);
+    }
+
+    private static Set<Bid> toSet(ImmutableList<Bid> bids) {
+        Set<Bid> set = new HashSet<>();
+        for (Bid bid : bids) {
+            set.add(bid);
+        }
+        return set;
+    }
+
+}
@@ -0,0 +1,226 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.bidspace.BidsWithUtility;
+import geniusweb.bidspace.Interval;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.DiscreteValueSet;
+import geniusweb.issuevalue.Domain;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.DiscreteValueSetUtilities;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.profile.utilityspace.LinearAdditiveUtilitySpace;
+import geniusweb.profile.utilityspace.NumberValueSetUtilities;
+import geniusweb.profile.utilityspace.ValueSetUtilities;
+
+public class CompiledUtilSpaceTest {
+
+    private static final double EPSILON = 1e-7;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private LinearAdditive testprofile;
+    private LinearAdditive bigprofile;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        testprofile = (LinearAdditive) jackson.readValue(serialized,
+                Profile.class);
+        bigprofile = createBigProfile();
+    }
+
+    @Test
+    public void testParityAllBids() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(testprofile);
+        for (Bid bid : new AllBidsList(testprofile.getDomain())) {
+            assertEquals(testprofile.getUtility(bid).doubleValue(),
+                    compiled.getUtility(bid), EPSILON);
+        }
+    }
+
+    @Test
+    public void testReservationBid() {
+        // the reservation bid contains values that are not in the domain
+        CompiledUtilSpace compiled = new CompiledUtilSpace(testprofile);
+        Bid rv = testprofile.getReservationBid();
+        assertEquals(testprofile.getUtility(rv).doubleValue(),
+                compiled.getUtility(rv), EPSILON);
+    }
+
+    @Test
+    public void testParityRandomBids() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(bigprofile);
+        AllBidsList all = new AllBidsList(bigprofile.getDomain());
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            Bid bid = all.get(
+                    (long) (random.nextDouble() * all.size().longValue()));
+            assertEquals(bigprofile.getUtility(bid).doubleValue(),
+                    compiled.getUtility(bid), EPSILON);
+        }
+    }
+
+    @Test
+    public void testOrdinals() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(bigprofile);
+        AllBidsList all = new AllBidsList(bigprofile.getDomain());
+        Random random = new Random(7);
+        for (int n = 0; n < 200; n++) {
+            Bid bid = all.get(
+                    (long) (random.nextDouble() * all.size().longValue()));
+            long[] ordinals = new long[compiled.getNumIssues()];
+            for (int i = 0; i < ordinals.length; i++) {
+                Value value = bid.getValue(compiled.getIssue(i));
+                ordinals[i] = compiled.getOrdinal(i, value);
+                assertEquals(value, compiled.getValue(i, ordinals[i]));
+            }
+            assertEquals(compiled.getUtility(bid), compiled.getUtility(ordinals),
+                    EPSILON);
+        }
+    }
+
+    @Test
+    public void testPartialBid() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(bigprofile);
+        Bid partial = new Bid("a", new DiscreteValue("a3"));
+        assertEquals(bigprofile.getUtility(partial).doubleValue(),
+                compiled.getUtility(partial), EPSILON);
+    }
+
+    @Test
+    public void testMinMax() {
+        CompiledUtilSpace compiled = new CompiledUtilSpace(bigprofile);
+        double max = 0, min = 0;
+        for (int i = 0; i < compiled.getNumIssues(); i++) {
+            max += compiled.getMaxUtil(i);
+            min += compiled.getMinUtil(i);
+        }
+        Interval range = new BidsWithUtility(bigprofile).getRange();
+        assertEquals(range.getMax().doubleValue(), max, 1e-5);
+        assertEquals(range.getMin().doubleValue(), min, 1e-5);
+    }
+
+    @Test
+    public void testLargeDiscreteIssue() {
+        LinearAdditive profile = createLargeDiscreteProfile();
+        CompiledUtilSpace compiled = new CompiledUtilSpace(profile);
+        AllBidsList all = new AllBidsList(profile.getDomain());
+        Random random = new Random(3);
+        for (int n = 0; n < 500; n++) {
+            Bid bid = all.get(
+                    (long) (random.nextDouble() * all.size().longValue()));
+            assertEquals(profile.getUtility(bid).doubleValue(),
+                    compiled.getUtility(bid), EPSILON);
+        }
+        int large = compiled.getIssue(0).equals("large") ? 0 : 1;
+        assertEquals(CompiledUtilSpace.MAX_TABLE_SIZE + 1,
+                compiled.getNumValues(large));
+        assertEquals(0d, compiled.getMinUtil(large), EPSILON);
+        assertEquals(0.8, compiled.getMaxUtil(large), EPSILON);
+    }
+
+    /**
+     * @return profile with a discrete issue that has more values than are
+     * tabulated for numeric issues, and a small discrete issue.
+     */
+    private static LinearAdditive createLargeDiscreteProfile() {
+        Map<String, ValueSet> issues = new HashMap<>();
+        Map<String, ValueSetUtilities> utils = new HashMap<>();
+        Map<String, BigDecimal> weights = new HashMap<>();
+
+        int size = CompiledUtilSpace.MAX_TABLE_SIZE + 1;
+        Map<DiscreteValue, BigDecimal> lutils = new HashMap<>();
+        for (int n = 0; n < size; n++) {
+            lutils.put(new DiscreteValue("l" + n), BigDecimal.valueOf(n)
+                    .divide(BigDecimal.valueOf(size - 1), 8,
+                            BigDecimal.ROUND_HALF_UP));
+        }
+        issues.put("large", new DiscreteValueSet(lutils.keySet()));
+        utils.put("large", new DiscreteValueSetUtilities(lutils));
+        weights.put("large", new BigDecimal("0.8"));
+
+        Map<DiscreteValue, BigDecimal> sutils = new HashMap<>();
+        sutils.put(new DiscreteValue("s0"), new BigDecimal("0.4"));
+        sutils.put(new DiscreteValue("s1"), BigDecimal.ONE);
+        issues.put("small", new DiscreteValueSet(sutils.keySet()));
+        utils.put("small", new DiscreteValueSetUtilities(sutils));
+        weights.put("small", new BigDecimal("0.2"));
+
+        Map<String, Value> rv = new HashMap<>();
+        rv.put("large", new DiscreteValue("l0"));
+        rv.put("small", new DiscreteValue("s0"));
+        return new LinearAdditiveUtilitySpace(new Domain("large", issues),
+                "largeprofile", utils, weights, new Bid(rv));
+    }
+
+    /**
+     * @return profile with two discrete issues, a small numeric issue with
+     * decreasing utility and a numeric issue that is too big to tabulate.
+     */
+    private static LinearAdditive createBigProfile() {
+        Map<String, ValueSet> issues = new HashMap<>();
+        Map<String, ValueSetUtilities> utils = new HashMap<>();
+        Map<String, BigDecimal> weights = new HashMap<>();
+
+        Map<DiscreteValue, BigDecimal> autils = new HashMap<>();
+        for (int n = 0; n < 5; n++) {
+            autils.put(new DiscreteValue("a" + n),
+                    BigDecimal.valueOf(n).divide(BigDecimal.valueOf(4)));
+        }
+        issues.put("a", new DiscreteValueSet(autils.keySet()));
+        utils.put("a", new DiscreteValueSetUtilities(autils));
+        weights.put("a", new BigDecimal("0.35"));
+
+        Map<DiscreteValue, BigDecimal> butils = new HashMap<>();
+        butils.put(new DiscreteValue("b0"), new BigDecimal("0.7"));
+        butils.put(new DiscreteValue("b1"), new BigDecimal("0.1"));
+        butils.put(new DiscreteValue("b2"), new BigDecimal("1"));
+        issues.put("b", new DiscreteValueSet(butils.keySet()));
+        utils.put("b", new DiscreteValueSetUtilities(butils));
+        weights.put("b", new BigDecimal("0.25"));
+
+        issues.put("c", new NumberValueSet(BigDecimal.ZERO, BigDecimal.TEN,
+                new BigDecimal("0.5")));
+        utils.put("c", new NumberValueSetUtilities(BigDecimal.ZERO,
+                new BigDecimal("0.9"), BigDecimal.TEN, new BigDecimal("0.1")));
+        weights.put("c", new BigDecimal("0.3"));
+
+        issues.put("d", new NumberValueSet(BigDecimal.ONE,
+                BigDecimal.valueOf(100000), BigDecimal.ONE));
+        utils.put("d", new NumberValueSetUtilities(BigDecimal.ONE,
+                BigDecimal.ZERO, BigDecimal.valueOf(100000), BigDecimal.ONE));
+        weights.put("d", new BigDecimal("0.1"));
+
+        Map<String, Value> rv = new HashMap<>();
+        rv.put("a", new DiscreteValue("a0"));
+        rv.put("b", new DiscreteValue("b1"));
+        rv.put("c", new NumberValue("0"));
+        rv.put("d", new NumberValue("1"));
+        return new LinearAdditiveUtilitySpace(new Domain("big", issues),
+                "bigprofile", utils, weights, new Bid(rv));
+    }
+
+}
@@ -0,0 +1,127 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.progress.ProgressRounds;
+import geniusweb.progress.ProgressTime;
+import tudelft.utilities.immutablelist.FixedList;
+import tudelft.utilities.immutablelist.ImmutableList;
+
+public class ConcessionScheduleTest {
+
+    private static final double EPSILON = 1e-12;
+
+    private double slope = 1;
+    private int resolved = 0;
+
+    private double target(double progress) {
+        return 1 - slope * progress;
+    }
+
+    private ImmutableList<Bid> resolve(double util) {
+        resolved++;
+        return new FixedList<>();
+    }
+
+    private ConcessionSchedule timeSchedule() {
+        return new ConcessionSchedule(new ProgressTime(1000L, new Date(0)),
+                this::target, this::resolve);
+    }
+
+    @Test
+    public void testRounds() {
+        ProgressRounds progress = new ProgressRounds(40, 0, new Date(0));
+        ConcessionSchedule schedule = new ConcessionSchedule(progress,
+                this::target, this::resolve);
+        assertEquals(40, schedule.getSteps());
+        for (int round = 0; round <= 40; round++) {
+            double p = progress.get(0L);
+            assertEquals(round, schedule.getIndex(p));
+            assertEquals(target(p), schedule.getTarget(p), 0d);
+            if (round < 40) {
+                progress = progress.advance();
+            }
+        }
+    }
+
+    @Test
+    public void testTime() {
+        ConcessionSchedule schedule = timeSchedule();
+        assertEquals(ConcessionSchedule.TIME_STEPS, schedule.getSteps());
+        assertEquals(target(0.5), schedule.getTarget(0.5), EPSILON);
+        // rounded down to the grid, so never below the exact target
+        assertEquals(target(0.123), schedule.getTarget(0.1234), EPSILON);
+        assertEquals(target(1), schedule.getTarget(1.5), EPSILON);
+        assertEquals(schedule.getSteps() + 1, schedule.getTargets().length);
+    }
+
+    @Test
+    public void testCandidatesResolvedOnce() {
+        ConcessionSchedule schedule = timeSchedule();
+        assertEquals(0, resolved);
+        ImmutableList<Bid> bids = schedule.getBids(0.3);
+        assertSame(bids, schedule.getBids(0.3));
+        assertSame(bids, schedule.getBids(0.3004));
+        assertEquals(1, resolved);
+        schedule.getBids(0.31);
+        assertEquals(2, resolved);
+    }
+
+    @Test
+    public void testEqualTargetsShareCandidates() {
+        ConcessionSchedule schedule = new ConcessionSchedule(
+                new ProgressTime(1000L, new Date(0)), p -> p < 0.5 ? 1 : 0.5,
+                this::resolve);
+        ImmutableList<Bid> bids = schedule.getBids(0.1);
+        assertSame(bids, schedule.getBids(0.101));
+        assertSame(bids, schedule.getBids(0.102));
+        assertEquals(1, resolved);
+        assertNotSame(bids, schedule.getBids(0.6));
+    }
+
+    @Test
+    public void testUnkeptCandidates() {
+        ConcessionSchedule schedule = new ConcessionSchedule(
+                new ProgressTime(1000L, new Date(0)), this::target,
+                util -> {
+                    resolved++;
+                    return null;
+                });
+        assertNull(schedule.getBids(0.3));
+        assertNull(schedule.getBids(0.3));
+        // not kept, so asked again
+        assertEquals(2, resolved);
+    }
+
+    @Test
+    public void testRebuildTail() {
+        ConcessionSchedule schedule = timeSchedule();
+        ImmutableList<Bid> early = schedule.getBids(0.2);
+        ImmutableList<Bid> late = schedule.getBids(0.7);
+        ImmutableList<Bid> start = schedule.getBids(0);
+
+        slope = 0.5;
+        // the grid point at 0 does not depend on the slope
+        assertEquals(1000, schedule.rebuild(0));
+        assertEquals(0, schedule.rebuild(0));
+        assertEquals(target(0.7), schedule.getTarget(0.7), EPSILON);
+        assertSame(start, schedule.getBids(0));
+        assertNotSame(late, schedule.getBids(0.7));
+
+        slope = 2;
+        assertEquals(501, schedule.rebuild(0.5));
+        // before the current progress, the table is kept
+        assertEquals(1 - 0.5 * 0.2, schedule.getTarget(0.2), EPSILON);
+        assertNotSame(early, schedule.getBids(0.2));
+        assertEquals(target(0.5), schedule.getTarget(0.5), EPSILON);
+        assertEquals(target(0.9), schedule.getTarget(0.9), EPSILON);
+    }
+}
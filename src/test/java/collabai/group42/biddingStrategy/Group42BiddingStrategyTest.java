@@ -2,7 +2,10 @@ package collabai.group42.biddingStrategy;
 
 import collabai.group42.opponent.Group42OpponentModel;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import geniusweb.actions.AbstractAction;
 import geniusweb.actions.Action;
+import geniusweb.actions.EndNegotiation;
+import geniusweb.actions.Offer;
 import geniusweb.actions.PartyId;
 import collabai.group42.BoaState;
 import geniusweb.inform.Settings;
@@ -19,6 +22,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import tudelft.utilities.immutablelist.FixedList;
 import tudelft.utilities.immutablelist.ImmutableList;
 import tudelft.utilities.logging.Reporter;
 
@@ -29,14 +33,14 @@ import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -156,11 +160,11 @@ public class Group42BiddingStrategyTest {
 
     @Test
     public void testGetNiceness() {
-        LinkedList<List<Double>> mockList1 = new LinkedList<>();
-        LinkedList<List<Double>> mockList2 = new LinkedList<>();
+        RegressionWindow mockList1 = new RegressionWindow(10, 1d);
+        RegressionWindow mockList2 = new RegressionWindow(10, 1d);
         for (int i = 0; i < 10; i++) {
-            mockList1.add(new ArrayList<>(Arrays.asList(i * 0.01, 0.2 - i * 0.01)));
-            mockList2.add(new ArrayList<>(Arrays.asList(1 - i * 0.01, 0.2)));
+            mockList1.add(i * 0.01, 0.2 - i * 0.01);
+            mockList2.add(1 - i * 0.01, 0.2);
         }
 
         doReturn(mockList1).when(biddingStrategy).getRecentBids();
@@ -199,4 +203,62 @@ public class Group42BiddingStrategyTest {
         assertEquals(bidOptions.get(0), biddingStrategy.getNiceBid(bidOptions, boaState));
     }
 
+    @Test
+    public void testLadderBids() {
+        for (double progress : new double[]{0, 0.05, 0.099}) {
+            double target = biddingStrategy.getTargetUtility(progress);
+            BigDecimal goal = BigDecimal.valueOf(target);
+            assertEquals(toSet(biddingStrategy.bidSpace.getBids(goal)),
+                    toSet(biddingStrategy.getLadderBids(target)));
+        }
+        // far below the opening, the ladder is not used
+        assertNull(biddingStrategy.getLadderBids(biddingStrategy.getMin()));
+    }
+
+    @Test
+    public void testScheduleFollowsNiceness() {
+        ConcessionSchedule schedule = biddingStrategy.getSchedule();
+        doReturn(0.0).when(biddingStrategy).getNiceness();
+        double tough = biddingStrategy.getTargetUtility(0.5);
+        double later = schedule.getTarget(0.7);
+        double earlier = schedule.getTarget(0.3);
+        doReturn(0.5).when(biddingStrategy).getNiceness();
+        double nice = biddingStrategy.getTargetUtility(0.5);
+        // b moved, so the tail of the schedule was rebuilt
+        double expected = (0.99 - Math.pow((0.5 - biddingStrategy.getB()),
+                biddingStrategy.getA()))
+                * (biddingStrategy.getMax() - biddingStrategy.getMin())
+                + biddingStrategy.getMin();
+        assertEquals(expected, nice, EPSILON);
+        assertTrue(nice != tough);
+        assertTrue(schedule.getTarget(0.7) != later);
+        // before the current progress, the schedule is kept
+        assertEquals(earlier, schedule.getTarget(0.3), 0d);
+    }
+
+    @Test
+    public void testAlterActionWithoutIndex() {
+        biddingStrategy.bidSpace = new ExtendedUtilSpace(
+                BidEnumeratorTest.createHugeProfile());
+        double target = 0.75;
+        AbstractAction action = biddingStrategy.getAlterAction(boaState,
+                target, null, new FixedList<>());
+        assertTrue(action instanceof Offer);
+        double util = biddingStrategy.bidSpace
+                .getUtility(((Offer) action).getBid());
+        assertTrue(util <= target + 1e-9 && util >= target - 0.1);
+
+        // nothing within 0.1 below an unreachable target
+        assertTrue(biddingStrategy.getAlterAction(boaState, 1.5, null,
+                new FixedList<>()) instanceof EndNegotiation);
+    }
+
+    private static Set<Bid> toSet(ImmutableList<Bid> bids) {
+        Set<Bid> set = new HashSet<>();
+        for (Bid bid : bids) {
+            set.add(bid);
+        }
+        return set;
+    }
+
 }
@@ -1,6 +1,8 @@
 package collabai.group42.biddingStrategy;
 
+import collabai.group42.opponent.Group42FrequencyModel;
 import collabai.group42.opponent.Group42OpponentModel;
+import collabai.group42.opponent.OpponentScore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import geniusweb.actions.Action;
 import geniusweb.actions.PartyId;
@@ -32,6 +34,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -106,6 +109,35 @@ public class Group42TicForTacTest {
                 , biddingStrategy.getNashPoint()[0], EPSILON);
     }
 
+    @Test
+    public void testNashPointOnlyRecomputedWhenModelMoves() {
+        doReturn(0.5).when(biddingStrategy).getOpponentUtility(any(), any());
+        biddingStrategy.updateNashPoint(boaState);
+        biddingStrategy.updateNashPoint(boaState);
+        assertEquals(1, biddingStrategy.getNashRecomputeCount());
+
+        doReturn(0.505).when(biddingStrategy).getOpponentUtility(any(), any());
+        biddingStrategy.updateNashPoint(boaState);
+        assertEquals(1, biddingStrategy.getNashRecomputeCount());
+
+        doReturn(0.7).when(biddingStrategy).getOpponentUtility(any(), any());
+        biddingStrategy.updateNashPoint(boaState);
+        assertEquals(2, biddingStrategy.getNashRecomputeCount());
+        assertEquals(0.7, biddingStrategy.getNashPoint()[1], EPSILON);
+    }
+
+    @Test
+    public void testNashPointNotRecomputedForSameScore() {
+        OpponentScore score = ((Group42OpponentModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null)).getScore();
+        when(opponentModel.getScore()).thenReturn(score);
+        biddingStrategy.updateNashPoint(boaState);
+        double[][] table = biddingStrategy.getOpponentTable(boaState);
+        biddingStrategy.updateNashPoint(boaState);
+        assertEquals(1, biddingStrategy.getNashRecomputeCount());
+        assertSame(table, biddingStrategy.getOpponentTable(boaState));
+    }
+
     @Test
     public void testTargetUtilityPhaseTwo() {
         doReturn(new double[]{0.5, 0.5}).when(biddingStrategy).getNashPoint();
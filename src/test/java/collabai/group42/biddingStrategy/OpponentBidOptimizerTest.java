@@ -0,0 +1,137 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import collabai.group42.opponent.Group42FrequencyModel;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.Value;
+import geniusweb.opponentmodel.OpponentModel;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.progress.ProgressRounds;
+
+public class OpponentBidOptimizerTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private LinearAdditive testprofile;
+    private LinearAdditive mine, theirs;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        testprofile = (LinearAdditive) jackson.readValue(serialized,
+                Profile.class);
+        mine = BidEnumeratorTest.createDiscreteProfile(5, 6, new Random(11));
+        theirs = BidEnumeratorTest.createDiscreteProfile(5, 6, new Random(12));
+    }
+
+    @Test
+    public void testTopKSameAsBruteForce() {
+        CompiledUtilSpace space = new CompiledUtilSpace(mine);
+        CompiledUtilSpace other = new CompiledUtilSpace(theirs);
+        OpponentBidOptimizer optimizer = new OpponentBidOptimizer(space,
+                OpponentBidOptimizer.tabulate(space, theirs));
+        List<Bid> all = new ArrayList<>();
+        for (Bid bid : new AllBidsList(mine.getDomain())) {
+            all.add(bid);
+        }
+        for (double target = 0.3; target < 0.9; target += 0.1) {
+            List<Double> expected = new ArrayList<>();
+            for (Bid bid : all) {
+                if (space.getUtility(bid) >= target) {
+                    expected.add(other.getUtility(bid));
+                }
+            }
+            expected.sort((x, y) -> Double.compare(y, x));
+
+            List<Bid> best = optimizer.getBestBids(target, 5);
+            assertEquals(Math.min(5, expected.size()), best.size());
+            for (int n = 0; n < best.size(); n++) {
+                assertTrue(space.getUtility(best.get(n)) >= target - EPSILON);
+                assertEquals(expected.get(n), other.getUtility(best.get(n)),
+                        1e-7);
+            }
+        }
+    }
+
+    @Test
+    public void testUnreachableTarget() {
+        CompiledUtilSpace space = new CompiledUtilSpace(mine);
+        OpponentBidOptimizer optimizer = new OpponentBidOptimizer(space,
+                OpponentBidOptimizer.tabulate(space, theirs));
+        assertNull(optimizer.getBestBid(1.5));
+        assertTrue(optimizer.getBestBids(0.5, 0).isEmpty());
+    }
+
+    @Test
+    public void testBestBidAtMaxIsOurBest() {
+        CompiledUtilSpace space = new CompiledUtilSpace(mine);
+        OpponentBidOptimizer optimizer = new OpponentBidOptimizer(space,
+                OpponentBidOptimizer.tabulate(space, theirs));
+        double max = 0;
+        for (int i = 0; i < space.getNumIssues(); i++) {
+            max += space.getMaxUtil(i);
+        }
+        Bid best = optimizer.getBestBid(max);
+        assertEquals(max, space.getUtility(best), 1e-7);
+    }
+
+    @Test
+    public void testTabulateFrequencyModel() {
+        OpponentModel model = new Group42FrequencyModel()
+                .with(testprofile.getDomain(), null);
+        PartyId other = new PartyId("other");
+        ProgressRounds progress = new ProgressRounds(200, 0,
+                new Date(Long.MAX_VALUE));
+        model = model.with(new Offer(other, bid("issue1value2", 17)), progress)
+                .with(new Offer(other, bid("issue1value2", 16)), progress);
+        Group42FrequencyModel om = (Group42FrequencyModel) model;
+
+        CompiledUtilSpace space = new CompiledUtilSpace(testprofile);
+        double[][] table = OpponentBidOptimizer.tabulate(space, om);
+        for (Bid bid : new AllBidsList(testprofile.getDomain())) {
+            double sum = 0;
+            for (int i = 0; i < space.getNumIssues(); i++) {
+                sum += table[i][(int) space.getOrdinal(i,
+                        bid.getValue(space.getIssue(i)))];
+            }
+            assertEquals(om.getUtility(bid).doubleValue(), sum, EPSILON);
+        }
+    }
+
+    private static Bid bid(String issue1, int issue2) {
+        Map<String, Value> values = new HashMap<>();
+        values.put("issue1", new DiscreteValue(issue1));
+        values.put("issue2", new NumberValue(BigDecimal.valueOf(issue2)));
+        return new Bid(values);
+    }
+
+}
@@ -0,0 +1,209 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class ParetoFrontierTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private CompiledUtilSpace mine, theirs, changed;
+
+    @Before
+    public void setup() {
+        // 6^6 bids, enough to build in parallel
+        LinearAdditive profile = BidEnumeratorTest.createDiscreteProfile(6, 6,
+                new Random(21));
+        mine = new CompiledUtilSpace(profile);
+        theirs = new CompiledUtilSpace(BidEnumeratorTest
+                .createDiscreteProfile(6, 6, new Random(22)));
+        changed = new CompiledUtilSpace(BidEnumeratorTest
+                .createDiscreteProfile(6, 6, new Random(23)));
+    }
+
+    @Test
+    public void testFrontier() {
+        BidIndex index = new BidIndex(mine, 0);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        assertTrue(frontier.update(table(theirs)));
+        assertEquals(expectedFrontier(index, theirs), positions(frontier, index));
+        for (int n = 1; n < frontier.size(); n++) {
+            assertTrue(frontier.getUtility(n - 1) <= frontier.getUtility(n));
+            assertTrue(frontier.getOpponentUtility(n - 1)
+                    > frontier.getOpponentUtility(n));
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        BidIndex index = new BidIndex(mine, 0);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        frontier.update(table(theirs));
+        assertFalse(frontier.update(table(theirs)));
+        assertEquals(1, frontier.getUpdateCount());
+
+        // change a single issue
+        double[][] opponent = table(theirs);
+        opponent[2] = table(changed)[2];
+        assertTrue(frontier.update(opponent));
+        ParetoFrontier fresh = new ParetoFrontier(index, mine);
+        fresh.update(opponent);
+        assertEquals(fresh.size(), frontier.size());
+        for (int n = 0; n < fresh.size(); n++) {
+            assertEquals(fresh.getBid(n), frontier.getBid(n));
+            assertEquals(fresh.getOpponentUtility(n),
+                    frontier.getOpponentUtility(n), EPSILON);
+        }
+    }
+
+    @Test
+    public void testResumRemovesDrift() {
+        BidIndex index = new BidIndex(mine, 0);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        double[][] first = table(theirs);
+        double[][] second = table(changed);
+        // the last update sums anew
+        for (int k = 0; k <= 2 * ParetoFrontier.RESUM_INTERVAL; k++) {
+            frontier.update(k % 2 == 0 ? first : second);
+        }
+        ParetoFrontier fresh = new ParetoFrontier(index, mine);
+        fresh.update(first);
+        assertEquals(fresh.size(), frontier.size());
+        for (int n = 0; n < fresh.size(); n++) {
+            assertEquals(fresh.getOpponentUtility(n),
+                    frontier.getOpponentUtility(n), 0d);
+        }
+    }
+
+    @Test
+    public void testBlocksKept() {
+        BidIndex index = new BidIndex(mine, 0);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        int blocks = (index.size() + ParetoFrontier.BLOCK_SIZE - 1)
+                / ParetoFrontier.BLOCK_SIZE;
+        frontier.update(table(theirs));
+        assertEquals(blocks, frontier.getBlockRebuildCount());
+        assertFalse(frontier.update(table(theirs)));
+        assertEquals(blocks, frontier.getBlockRebuildCount());
+    }
+
+    @Test
+    public void testNicestSameAsOptimizer() {
+        BidIndex index = new BidIndex(mine, 0);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        frontier.update(table(theirs));
+        OpponentBidOptimizer optimizer = new OpponentBidOptimizer(mine,
+                table(theirs));
+        for (double target = 0.2; target < 1; target += 0.05) {
+            int nicest = frontier.getNicest(target);
+            if (nicest < 0) {
+                assertEquals(null, optimizer.getBestBid(target));
+                continue;
+            }
+            assertEquals(theirs.getUtility(optimizer.getBestBid(target)),
+                    frontier.getOpponentUtility(nicest), 1e-7);
+            assertTrue(frontier.getUtility(nicest) >= target - EPSILON);
+        }
+    }
+
+    @Test
+    public void testNash() {
+        BidIndex index = new BidIndex(mine, 0);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        frontier.update(table(theirs));
+        frontier.setReservations(0.2, 0.1);
+        double best = Double.NEGATIVE_INFINITY;
+        for (int pos = 0; pos < index.size(); pos++) {
+            best = Math.max(best, (index.getUtility(pos) - 0.2)
+                    * (theirs.getUtility(index.getBid(pos)) - 0.1));
+        }
+        int nash = frontier.getNash();
+        assertEquals(best, (frontier.getUtility(nash) - 0.2)
+                * (frontier.getOpponentUtility(nash) - 0.1), 1e-7);
+    }
+
+    @Test
+    public void testKalaiSmorodinsky() {
+        BidIndex index = new BidIndex(mine, 0);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        frontier.update(table(theirs));
+        int last = frontier.size() - 1;
+        double myRange = frontier.getUtility(last);
+        double oppRange = frontier.getOpponentUtility(0);
+        double bestGap = Double.MAX_VALUE;
+        for (int n = 0; n <= last; n++) {
+            bestGap = Math.min(bestGap, Math.abs(frontier.getUtility(n) / myRange
+                    - frontier.getOpponentUtility(n) / oppRange));
+        }
+        int ks = frontier.getKalaiSmorodinsky();
+        assertEquals(bestGap, Math.abs(frontier.getUtility(ks) / myRange
+                - frontier.getOpponentUtility(ks) / oppRange), EPSILON);
+    }
+
+    @Test
+    public void testEmpty() {
+        BidIndex index = new BidIndex(mine, 2);
+        ParetoFrontier frontier = new ParetoFrontier(index, mine);
+        frontier.update(table(theirs));
+        assertEquals(0, frontier.size());
+        assertEquals(-1, frontier.getNash());
+        assertEquals(-1, frontier.getNicest(0.5));
+        assertEquals(-1, frontier.getKalaiSmorodinsky());
+    }
+
+    /**
+     * @return weighted utility of other per issue and ordinal. The issues of
+     * the profiles have the same names and values.
+     */
+    private double[][] table(CompiledUtilSpace other) {
+        double[][] table = new double[mine.getNumIssues()][];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = new double[(int) mine.getNumValues(i)];
+            for (int o = 0; o < table[i].length; o++) {
+                table[i][o] = other.getWeightedUtil(i, mine.getValue(i, o));
+            }
+        }
+        return table;
+    }
+
+    private static List<Integer> expectedFrontier(BidIndex index,
+                                                  CompiledUtilSpace other) {
+        List<Integer> expected = new ArrayList<>();
+        double best = Double.NEGATIVE_INFINITY;
+        for (int pos = index.size() - 1; pos >= 0; pos--) {
+            double opp = other.getUtility(index.getBid(pos));
+            if (opp > best) {
+                best = opp;
+                expected.add(0, pos);
+            }
+        }
+        return expected;
+    }
+
+    private static List<Integer> positions(ParetoFrontier frontier,
+                                           BidIndex index) {
+        List<Integer> positions = new ArrayList<>();
+        for (int n = 0; n < frontier.size(); n++) {
+            double util = frontier.getUtility(n);
+            for (int pos = index.lowerBound(util - EPSILON);
+                 pos < index.size(); pos++) {
+                if (index.getBid(pos).equals(frontier.getBid(n))) {
+                    positions.add(pos);
+                    break;
+                }
+            }
+        }
+        return positions;
+    }
+
+}
@@ -0,0 +1,82 @@
+package collabai.group42.biddingStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.junit.Test;
+
+public class RegressionWindowTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void testTooFewPoints() {
+        RegressionWindow window = new RegressionWindow(10, 1d);
+        assertTrue(Double.isNaN(window.getSlope()));
+        window.add(0.1, 0.5);
+        assertTrue(Double.isNaN(window.getSlope()));
+        window.add(0.2, 0.7);
+        assertEquals(2, window.getSlope(), EPSILON);
+    }
+
+    @Test
+    public void testSameX() {
+        RegressionWindow window = new RegressionWindow(10, 1d);
+        for (int n = 0; n < 10; n++) {
+            window.add(0.37, n * 0.1);
+        }
+        assertTrue(Double.isNaN(window.getSlope()));
+    }
+
+    @Test
+    public void testSameAsSimpleRegression() {
+        Random random = new Random(5);
+        RegressionWindow window = new RegressionWindow(10, 1d);
+        double[] xs = new double[500], ys = new double[500];
+        for (int n = 0; n < xs.length; n++) {
+            xs[n] = n / 500d;
+            ys[n] = 0.9 - 0.5 * xs[n] + 0.1 * random.nextDouble();
+            window.add(xs[n], ys[n]);
+            if (n < 1) {
+                continue;
+            }
+            SimpleRegression regression = new SimpleRegression();
+            for (int k = Math.max(0, n - 9); k <= n; k++) {
+                regression.addData(xs[k], ys[k]);
+            }
+            assertEquals(regression.getSlope(), window.getSlope(), 1e-6);
+            assertEquals(Math.min(n + 1, 10), window.size());
+        }
+    }
+
+    @Test
+    public void testDecay() {
+        Random random = new Random(8);
+        double decay = 0.8;
+        RegressionWindow window = new RegressionWindow(6, decay);
+        double[] xs = new double[100], ys = new double[100];
+        for (int n = 0; n < xs.length; n++) {
+            xs[n] = random.nextDouble();
+            ys[n] = random.nextDouble();
+            window.add(xs[n], ys[n]);
+            if (n < 1) {
+                continue;
+            }
+            // weighted least squares over the last 6 points
+            double sw = 0, sx = 0, sy = 0, sxx = 0, sxy = 0, w = 1;
+            for (int k = n; k >= Math.max(0, n - 5); k--) {
+                sw += w;
+                sx += w * xs[k];
+                sy += w * ys[k];
+                sxx += w * xs[k] * xs[k];
+                sxy += w * xs[k] * ys[k];
+                w *= decay;
+            }
+            double expected = (sxy - sx * sy / sw) / (sxx - sx * sx / sw);
+            assertEquals(expected, window.getSlope(), EPSILON);
+        }
+    }
+}
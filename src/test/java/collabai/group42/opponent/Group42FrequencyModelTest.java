@@ -0,0 +1,248 @@
+package collabai.group42.opponent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import collabai.group42.biddingStrategy.CompiledUtilSpace;
+import geniusweb.actions.Accept;
+import geniusweb.actions.Action;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+import geniusweb.opponentmodel.OpponentModel;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.progress.ProgressRounds;
+
+public class Group42FrequencyModelTest {
+
+    /**
+     * the reference model rounds to 4 decimals.
+     */
+    private static final double EPSILON = 1e-3;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+    private static final int ROUNDS = 200;
+
+    private final PartyId other = new PartyId("other");
+    private LinearAdditive profile;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+    }
+
+    @Test
+    public void testSameAsReference() {
+        Group42OpponentModel model = (Group42OpponentModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null);
+        Group42OpponentModel reference = (Group42OpponentModel) new ReferenceFrequencyModel()
+                .with(profile.getDomain(), null);
+        AllBidsList allBids = new AllBidsList(profile.getDomain());
+        Random random = new Random(42);
+        Bid previous = allBids.get(0);
+        for (int round = 0; round < ROUNDS; round++) {
+            // mostly repeat the previous value, to move the weights
+            Bid bid = bid(random.nextInt(4) == 0
+                            ? (random.nextBoolean() ? "issue1value1" : "issue1value2")
+                            : ((DiscreteValue) previous.getValue("issue1")).getValue(),
+                    12 + random.nextInt(7));
+            Offer offer = new Offer(other, bid);
+            model = (Group42OpponentModel) model.with(offer, progress(round));
+            reference = (Group42OpponentModel) reference.with(offer, progress(round));
+            previous = bid;
+
+            for (Bid b : allBids) {
+                assertEquals(reference.getUtility(b).doubleValue(),
+                        model.getUtility(b).doubleValue(), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void testOlderVersionsUnchanged() {
+        AllBidsList allBids = new AllBidsList(profile.getDomain());
+        Group42OpponentModel model = (Group42OpponentModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null)
+                .with(new Offer(other, bid("issue1value1", 13)), progress(0));
+        double[] before = new double[allBids.size().intValue()];
+        for (int n = 0; n < before.length; n++) {
+            before[n] = model.getUtility(allBids.get(n)).doubleValue();
+        }
+        // a fresh version that has not been read yet
+        Group42OpponentModel unread = (Group42OpponentModel) model
+                .with(new Offer(other, bid("issue1value1", 14)), progress(1));
+        Group42OpponentModel unreadCopy = (Group42OpponentModel) model
+                .with(new Offer(other, bid("issue1value1", 14)), progress(1));
+        for (int round = 2; round < 20; round++) {
+            model.with(new Offer(other, bid("issue1value2", 18)), progress(round));
+            unread.with(new Offer(other, bid("issue1value2", 12)), progress(round));
+        }
+        for (int n = 0; n < before.length; n++) {
+            assertEquals(before[n], model.getUtility(allBids.get(n)).doubleValue(),
+                    0d);
+            assertEquals(unreadCopy.getUtility(allBids.get(n)).doubleValue(),
+                    unread.getUtility(allBids.get(n)).doubleValue(), 0d);
+        }
+    }
+
+    @Test
+    public void testKernels() {
+        for (Group42FrequencyModel.Kernel kernel : Group42FrequencyModel.Kernel
+                .values()) {
+            Group42OpponentModel model = (Group42OpponentModel) new Group42FrequencyModel(
+                    kernel).with(profile.getDomain(), null);
+            for (int round = 0; round < 10; round++) {
+                model = (Group42OpponentModel) model.with(
+                        new Offer(other, bid("issue1value1", 17)), progress(round));
+            }
+            double low = model.getUtility(new Bid("issue2",
+                    new NumberValue(BigDecimal.valueOf(12)))).doubleValue();
+            double high = model.getUtility(new Bid("issue2",
+                    new NumberValue(BigDecimal.valueOf(18)))).doubleValue();
+            assertTrue(kernel.toString(), high > low);
+            assertTrue(kernel.toString(), low >= 0);
+        }
+    }
+
+    @Test
+    public void testBatchSameAsSingle() {
+        Group42OpponentModel model = (Group42OpponentModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null)
+                .with(new Offer(other, bid("issue1value2", 17)), progress(0))
+                .with(new Offer(other, bid("issue1value2", 16)), progress(1))
+                .with(new Offer(other, bid("issue1value1", 16)), progress(2));
+        CompiledUtilSpace space = new CompiledUtilSpace(profile);
+        AllBidsList allBids = new AllBidsList(profile.getDomain());
+        int count = allBids.size().intValue();
+        int n = space.getNumIssues();
+        long[] ordinals = new long[count * n];
+        for (int b = 0; b < count; b++) {
+            for (int i = 0; i < n; i++) {
+                ordinals[b * n + i] = space.getOrdinal(i,
+                        allBids.get(b).getValue(space.getIssue(i)));
+            }
+        }
+        double[] utilities = new double[count + 1];
+        utilities[count] = -1;
+        model.getUtilities(ordinals, count, utilities);
+        for (int b = 0; b < count; b++) {
+            assertEquals(model.getScore().getUtility(allBids.get(b)),
+                    utilities[b], 1e-9);
+        }
+        assertEquals(-1, utilities[count], 0d);
+    }
+
+    @Test
+    public void testWithAllSameAsSequential() {
+        Group42OpponentModel initial = (Group42OpponentModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null);
+        Random random = new Random(7);
+        List<Action> actions = new ArrayList<>();
+        for (int n = 0; n < 50; n++) {
+            Bid bid = bid(random.nextBoolean() ? "issue1value1" : "issue1value2",
+                    12 + random.nextInt(7));
+            actions.add(n % 10 == 9 ? new Accept(other, bid)
+                    : new Offer(other, bid));
+        }
+        Group42OpponentModel sequential = initial;
+        for (int n = 0; n < actions.size(); n++) {
+            sequential = (Group42OpponentModel) sequential.with(actions.get(n),
+                    progress(n));
+        }
+        // in two batches, to also start from a model with a previous bid
+        Group42OpponentModel batched = initial
+                .withAll(actions.subList(0, 20), n -> progress(n))
+                .withAll(actions.subList(20, 50), n -> progress(n + 20));
+        for (Bid bid : new AllBidsList(profile.getDomain())) {
+            assertEquals(sequential.getUtility(bid), batched.getUtility(bid));
+        }
+    }
+
+    @Test
+    public void testDiscreteBeforeFirstOffer() {
+        Group42FrequencyModel model = (Group42FrequencyModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null);
+        // uniform frequencies, no numeric observations yet
+        assertEquals(0.25, model.getUtilityValue(bid("issue1value1", 15)), 1e-9);
+    }
+
+    @Test
+    public void testIgnoresOtherActions() {
+        OpponentModel model = new Group42FrequencyModel()
+                .with(profile.getDomain(), null);
+        assertSame(model, model.with(new Accept(other, bid("issue1value1", 12)),
+                progress(0)));
+    }
+
+    @Test
+    public void testPartialBid() {
+        Group42OpponentModel model = (Group42OpponentModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null)
+                .with(new Offer(other, bid("issue1value2", 17)), progress(0))
+                .with(new Offer(other, bid("issue1value2", 16)), progress(1));
+        Bid full = bid("issue1value2", 16);
+        double sum = model.getUtility(new Bid("issue1", full.getValue("issue1")))
+                .doubleValue()
+                + model.getUtility(new Bid("issue2", full.getValue("issue2")))
+                .doubleValue();
+        assertEquals(model.getUtility(full).doubleValue(), sum, 1e-9);
+    }
+
+    @Test
+    public void testWeightedUtils() {
+        Group42OpponentModel model = (Group42OpponentModel) new Group42FrequencyModel()
+                .with(profile.getDomain(), null)
+                .with(new Offer(other, bid("issue1value2", 17)), progress(0))
+                .with(new Offer(other, bid("issue1value1", 16)), progress(1));
+        OpponentScore score = model.getScore();
+        for (String issue : profile.getDomain().getIssues()) {
+            ValueSet values = profile.getDomain().getValues(issue);
+            double[] utils = score.getWeightedUtils(
+                    score.getIssueIndex(issue), values);
+            assertEquals(values.size().intValue(), utils.length);
+            for (int o = 0; o < utils.length; o++) {
+                assertEquals(score.getUtility(new Bid(issue,
+                        values.get(o))), utils[o], 1e-9);
+            }
+        }
+        assertEquals(-1, score.getIssueIndex("unknown"));
+    }
+
+    private static ProgressRounds progress(int round) {
+        return new ProgressRounds(ROUNDS, round, new Date(Long.MAX_VALUE));
+    }
+
+    private static Bid bid(String issue1, int issue2) {
+        Map<String, Value> values = new HashMap<>();
+        values.put("issue1", new DiscreteValue(issue1));
+        values.put("issue2", new NumberValue(BigDecimal.valueOf(issue2)));
+        return new Bid(values);
+    }
+
+}
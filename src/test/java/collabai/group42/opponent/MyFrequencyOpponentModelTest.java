@@ -0,0 +1,180 @@
+package collabai.group42.opponent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import collabai.group42.biddingStrategy.CompiledUtilSpace;
+import geniusweb.actions.Accept;
+import geniusweb.actions.Action;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.Value;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.progress.ProgressRounds;
+
+public class MyFrequencyOpponentModelTest {
+
+    /**
+     * the model rounds to 4 decimals.
+     */
+    private static final double EPSILON = 1e-4;
+    private static final String PROFILE = "src/test/resources/testprofile.json";
+    private final static ObjectMapper jackson = new ObjectMapper();
+
+    private final PartyId other = new PartyId("other");
+    private final ProgressRounds progress = new ProgressRounds(200, 0,
+            new Date(Long.MAX_VALUE));
+    private LinearAdditive profile;
+
+    @Before
+    public void setup() throws IOException {
+        String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)),
+                StandardCharsets.UTF_8);
+        profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+    }
+
+    @Test
+    public void testScoreSameAsUtility() {
+        MyFrequencyOpponentModel model = new MyFrequencyOpponentModel()
+                .with(profile.getDomain(), null);
+        assertScoreSameAsUtility(model);
+        model = model.with(new Offer(other, bid("issue1value1", 12)), progress)
+                .with(new Offer(other, bid("issue1value1", 13)), progress)
+                .with(new Offer(other, bid("issue1value2", 13)), progress);
+        assertScoreSameAsUtility(model);
+    }
+
+    @Test
+    public void testScoreBuiltOnce() {
+        MyFrequencyOpponentModel model = new MyFrequencyOpponentModel()
+                .with(profile.getDomain(), null)
+                .with(new Offer(other, bid("issue1value1", 12)), progress);
+        assertSame(model.getScore(), model.getScore());
+    }
+
+    @Test
+    public void testCounts() {
+        MyFrequencyOpponentModel first = new MyFrequencyOpponentModel()
+                .with(profile.getDomain(), null)
+                .with(new Offer(other, bid("issue1value1", 12)), progress);
+        MyFrequencyOpponentModel second = first
+                .with(new Offer(other, bid("issue1value1", 13)), progress);
+        Map<Value, Integer> expected = new HashMap<>();
+        expected.put(new DiscreteValue("issue1value1"), 2);
+        assertEquals(expected, second.getCounts("issue1"));
+        expected.clear();
+        expected.put(new NumberValue(BigDecimal.valueOf(12)), 1);
+        expected.put(new NumberValue(BigDecimal.valueOf(13)), 1);
+        assertEquals(expected, second.getCounts("issue2"));
+        // the older version is unchanged
+        assertEquals(1, first.getCounts("issue2").size());
+        assertTrue(second.getCounts("unknown").isEmpty());
+    }
+
+    @Test
+    public void testUtilityValue() {
+        MyFrequencyOpponentModel model = new MyFrequencyOpponentModel()
+                .with(profile.getDomain(), null);
+        assertEquals(1, model.getUtilityValue(bid("issue1value1", 12)), 0d);
+        model = model.with(new Offer(other, bid("issue1value1", 12)), progress)
+                .with(new Offer(other, bid("issue1value1", 13)), progress)
+                .with(new Offer(other, bid("issue1value2", 13)), progress);
+        for (Bid bid : new AllBidsList(profile.getDomain())) {
+            assertEquals(model.getUtility(bid).doubleValue(),
+                    model.getUtilityValue(bid), EPSILON);
+        }
+    }
+
+    @Test
+    public void testBatchSameAsSingle() {
+        Group42OpponentModel model = new MyFrequencyOpponentModel()
+                .with(profile.getDomain(), null)
+                .with(new Offer(other, bid("issue1value2", 17)), progress)
+                .with(new Offer(other, bid("issue1value2", 16)), progress)
+                .with(new Offer(other, bid("issue1value1", 16)), progress);
+        CompiledUtilSpace space = new CompiledUtilSpace(profile);
+        AllBidsList allBids = new AllBidsList(profile.getDomain());
+        int count = allBids.size().intValue();
+        int n = space.getNumIssues();
+        long[] ordinals = new long[count * n];
+        for (int b = 0; b < count; b++) {
+            for (int i = 0; i < n; i++) {
+                ordinals[b * n + i] = space.getOrdinal(i,
+                        allBids.get(b).getValue(space.getIssue(i)));
+            }
+        }
+        double[] utilities = new double[count + 1];
+        utilities[count] = -1;
+        model.getUtilities(ordinals, count, utilities);
+        for (int b = 0; b < count; b++) {
+            assertEquals(model.getScore().getUtility(allBids.get(b)),
+                    utilities[b], 1e-9);
+        }
+        assertEquals(-1, utilities[count], 0d);
+    }
+
+    @Test
+    public void testWithAllSameAsSequential() {
+        Group42OpponentModel initial = new MyFrequencyOpponentModel()
+                .with(profile.getDomain(), null);
+        Random random = new Random(7);
+        List<Action> actions = new ArrayList<>();
+        for (int n = 0; n < 50; n++) {
+            Bid bid = bid(random.nextBoolean() ? "issue1value1" : "issue1value2",
+                    12 + random.nextInt(7));
+            actions.add(n % 10 == 9 ? new Accept(other, bid)
+                    : new Offer(other, bid));
+        }
+        Group42OpponentModel sequential = initial;
+        for (int n = 0; n < actions.size(); n++) {
+            sequential = (Group42OpponentModel) sequential.with(actions.get(n),
+                    progress);
+        }
+        // in two batches, to also start from a model with a previous bid
+        Group42OpponentModel batched = initial
+                .withAll(actions.subList(0, 20), n -> progress)
+                .withAll(actions.subList(20, 50), n -> progress);
+        for (Bid bid : new AllBidsList(profile.getDomain())) {
+            assertEquals(sequential.getUtility(bid), batched.getUtility(bid));
+        }
+    }
+
+    private void assertScoreSameAsUtility(MyFrequencyOpponentModel model) {
+        OpponentScore score = model.getScore();
+        for (Bid bid : new AllBidsList(profile.getDomain())) {
+            assertEquals(model.getUtility(bid).doubleValue(),
+                    score.getUtility(bid), EPSILON);
+        }
+    }
+
+    private static Bid bid(String issue1, int issue2) {
+        Map<String, Value> values = new HashMap<>();
+        values.put("issue1", new DiscreteValue(issue1));
+        values.put("issue2", new NumberValue(BigDecimal.valueOf(issue2)));
+        return new Bid(values);
+    }
+
+}
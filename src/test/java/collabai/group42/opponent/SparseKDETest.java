@@ -0,0 +1,85 @@
+package collabai.group42.opponent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import collabai.group42.opponent.Group42FrequencyModel.Kernel;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.issuevalue.DiscreteValueSet;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.NumberValueSet;
+
+public class SparseKDETest {
+
+    private static final double EPSILON = 1e-9;
+
+    private final NumberValueSet wide = new NumberValueSet(BigDecimal.ZERO,
+            BigDecimal.valueOf(1000000), BigDecimal.ONE);
+    private final NumberValueSet small = new NumberValueSet(
+            BigDecimal.valueOf(12), BigDecimal.valueOf(18), BigDecimal.ONE);
+
+    @Test
+    public void testBinsBounded() {
+        SparseKDE kde = new SparseKDE(Kernel.TRIANGULAR, wide);
+        assertTrue(kde.getNumBins() <= SparseKDE.MAX_BINS);
+        assertEquals(7, new SparseKDE(Kernel.TRIANGULAR, small).getNumBins());
+    }
+
+    @Test
+    public void testWideRange() {
+        for (Kernel kernel : Kernel.values()) {
+            SparseKDE kde = new SparseKDE(kernel, wide);
+            for (int n = 0; n < 10; n++) {
+                kde = kde.plus(900000, n / 10d);
+            }
+            double low = kde.getUtility(new NumberValue(BigDecimal.ZERO))
+                    .doubleValue();
+            double high = kde.getUtility(new NumberValue(BigDecimal.valueOf(
+                    1000000))).doubleValue();
+            assertTrue(kernel.toString(), high > low);
+            assertEquals(kde.getUtility(500000d), (low + high) / 2, 1e-6);
+        }
+    }
+
+    @Test
+    public void testNothingAdded() {
+        SparseKDE kde = new SparseKDE(Kernel.TRIANGULAR, wide);
+        assertEquals(0, kde.getLowUtility(), 0d);
+        assertEquals(0, kde.getUtility(3d), 0d);
+    }
+
+    @Test
+    public void testIgnoresValuesNotInSet() {
+        SparseKDE kde = new SparseKDE(Kernel.TRIANGULAR, small);
+        assertSame(kde, kde.plus(12.5, 0));
+        assertSame(kde, kde.plus(19, 0));
+        assertSame(kde, kde.plus(11, 0));
+    }
+
+    @Test
+    public void testOlderVersionsUnchanged() {
+        SparseKDE first = new SparseKDE(Kernel.TRIANGULAR, small).plus(13, 0);
+        double low = first.getLowUtility(), high = first.getHighUtility();
+        first.plus(18, 0.5).plus(17, 0.5);
+        assertEquals(low, first.getLowUtility(), EPSILON);
+        assertEquals(high, first.getHighUtility(), EPSILON);
+    }
+
+    @Test
+    public void testIsFitting() {
+        SparseKDE kde = new SparseKDE(Kernel.TRIANGULAR, small);
+        assertNull(kde.isFitting(small));
+        assertNotNull(kde.isFitting(wide));
+        assertNotNull(kde.isFitting(new DiscreteValueSet(
+                Arrays.asList(new DiscreteValue("a")))));
+    }
+
+}